@@ -0,0 +1,138 @@
+package com.oakdonuts.benchmarks;
+
+import com.oakdonuts.database.DatabaseManager;
+import com.oakdonuts.models.MenuItem;
+import com.oakdonuts.models.NewOrder;
+import com.oakdonuts.models.Order;
+import com.oakdonuts.models.OrderLine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// DataLayerBenchmark - DatabaseManager reads and writes against an in-memory Derby database of a given size
+// Every trial seeds the same orders (fixed seed), so results stay comparable from one release to the next.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx4g"})
+public class DataLayerBenchmark {
+    private static final long SEED = 42;
+    private static final int SEED_BATCH = 1000;
+    private static final LocalDateTime FIRST_ORDER = LocalDateTime.of(2025, 1, 1, 7, 0);
+    private static final long SEEDED_SPAN_SECONDS = 365L * 24 * 60 * 60;
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String[] STATUSES = {"pending", "ready", "picked up"};
+
+    @Param({"1000", "100000", "1000000"})
+    public int orders;
+
+    private String url;
+    private DatabaseManager db;
+    private List<MenuItem> menu;
+    private Random random;
+    private int createdOrders;
+
+    // SEED BLOCK - a fresh database per size, filled through createOrders like journal replay does
+    @Setup(Level.Trial)
+    public void seed() {
+        url = "jdbc:derby:memory:benchmark" + orders;
+        db = new DatabaseManager(url + ";create=true");
+        menu = db.getMenuCatalog().getItems();
+        random = new Random(SEED);
+        List<NewOrder> batch = new ArrayList<>(SEED_BATCH);
+        for (int i = 0; i < orders; i++) {
+            LocalDateTime date = FIRST_ORDER.plusSeconds(i * SEEDED_SPAN_SECONDS / orders);
+            batch.add(randomOrder(String.format("OD-%08d", i), date));
+            if (batch.size() == SEED_BATCH) {
+                insert(batch);
+            }
+        }
+        insert(batch);
+        createdOrders = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void drop() {
+        db.close();
+        try {
+            DriverManager.getConnection(url + ";drop=true");
+        } catch (SQLException e) {
+            // Derby reports a successful drop as an exception (SQLState 08006)
+            if (!"08006".equals(e.getSQLState())) e.printStackTrace();
+        }
+    }
+
+    // CREATE ORDER - one checkout, dated after the seeded history
+    @Benchmark
+    public boolean createOrder() {
+        NewOrder order = randomOrder(String.format("BM-%08d", createdOrders), FIRST_ORDER.plusSeconds(SEEDED_SPAN_SECONDS + createdOrders));
+        createdOrders++;
+        return db.createOrder(order.transactionId, order.date, order.totalPrice, order.lines);
+    }
+
+    // GET ORDERS - the whole history with items
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2, time = 5)
+    @Measurement(iterations = 3, time = 10)
+    public List<Order> getOrders() {
+        return db.getOrders();
+    }
+
+    // GET MENU ITEMS - menu read straight from Derby, bypassing the catalog
+    @Benchmark
+    public List<MenuItem> getMenuItems() {
+        return db.getMenuItems();
+    }
+
+    // UPDATE ORDER STATUS - status change on a random seeded order
+    @Benchmark
+    public boolean updateOrderStatus() {
+        String transactionId = String.format("OD-%08d", random.nextInt(orders));
+        return db.updateOrderStatus(transactionId, STATUSES[random.nextInt(STATUSES.length)]);
+    }
+
+    // HELPERS BLOCK
+    private void insert(List<NewOrder> batch) {
+        if (batch.isEmpty()) return;
+        if (db.createOrders(batch) != batch.size()) {
+            throw new IllegalStateException("Seeding failed at " + batch.get(0).transactionId);
+        }
+        batch.clear();
+    }
+
+    // RANDOM ORDER - 1-4 lines of 1-3 donuts each, priced from the menu
+    private NewOrder randomOrder(String transactionId, LocalDateTime date) {
+        int lineCount = 1 + random.nextInt(4);
+        List<OrderLine> lines = new ArrayList<>(lineCount);
+        double total = 0;
+        for (int i = 0; i < lineCount; i++) {
+            MenuItem item = menu.get(random.nextInt(menu.size()));
+            int quantity = 1 + random.nextInt(3);
+            lines.add(new OrderLine(item.id, quantity));
+            total += item.price * quantity;
+        }
+        return new NewOrder(transactionId, date.format(DATE_FORMAT), total, lines);
+    }
+}
@@ -1,54 +1,244 @@
 package com.oakdonuts;
 
+import com.oakdonuts.database.AsyncDatabase;
 import com.oakdonuts.database.DatabaseManager;
+import com.oakdonuts.database.OrderShards;
+import com.oakdonuts.database.SalesReports;
+import com.oakdonuts.events.DataChange;
+import com.oakdonuts.events.RingBuffer;
+import com.oakdonuts.kitchen.KitchenQueue;
+import com.oakdonuts.metrics.LatencyHistogram;
+import com.oakdonuts.metrics.MetricsRegistry;
+import com.oakdonuts.metrics.OperationTimer;
+import com.oakdonuts.models.Cart;
+import com.oakdonuts.models.CategorySales;
+import com.oakdonuts.models.HourlySales;
+import com.oakdonuts.models.ItemSales;
 import com.oakdonuts.models.MenuItem;
+import com.oakdonuts.journal.JournaledOrderWriter;
+import com.oakdonuts.models.NewOrder;
 import com.oakdonuts.models.Order;
+import com.oakdonuts.models.OrderLine;
+import com.oakdonuts.server.OrderServer;
+import com.oakdonuts.ui.CartTableModel;
+import com.oakdonuts.ui.ChangeBatcher;
+import com.oakdonuts.ui.KitchenTableModel;
+import com.oakdonuts.ui.MenuFilterBar;
+import com.oakdonuts.ui.MenuTableModel;
+import com.oakdonuts.ui.OrderDetailsCache;
+import com.oakdonuts.ui.OrderHistoryTableModel;
+import com.oakdonuts.util.TransactionIds;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.awt.event.HierarchyEvent;
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 // Main application winndow - manages all GUI components for the Oak Donuts ordering ssytsem
 public class MainFrame extends JFrame {
+    private static final Executor EDT = SwingUtilities::invokeLater;
+    private static final Path DATA_PATH = Paths.get("data");
+    private static final Path STORES_PATH = DATA_PATH.resolve("stores");
+    private static final String JOURNAL_FILE = "orders.journal";
+    private static final int DIAGNOSTICS_WINDOW = 10;
+    private static final int ARCHIVE_AFTER_DAYS = 365;
     private DatabaseManager db;
+    private AsyncDatabase asyncDb;
+    private JournaledOrderWriter orderWriter;
+    private ChangeBatcher changeBatcher;
+    private KitchenQueue kitchenQueue;
+    private JProgressBar busyBar;
     private JTabbedPane tabs;
-    private List<MenuItem> cart;
-    private DefaultTableModel menuTableModel, ordersTableModel;
+    private final Cart cart = new Cart();
+    private final TransactionIds transactionIds = new TransactionIds("OD", TransactionIds.defaultTerminal());
+    private MenuTableModel menuTableModel;
+    private MenuFilterBar menuFilterBar;
+    private OrderHistoryTableModel ordersTableModel;
     private JTable menuTable, ordersTable, cartTable;
-    private DefaultTableModel cartTableModel;
+    private CartTableModel cartTableModel;
     private JLabel cartTotalLabel, orderDetailsLabel;
     private JTextArea orderDetailsArea;
+    private final OrderDetailsCache orderDetailsCache = new OrderDetailsCache(64);
+    private final List<Supplier<JPanel>> tabFactories = new ArrayList<>();
+    private boolean painted;
 
-    // Constructor - setup main window and all tabs
+    // Constructor - show the window straight away with placeholder tabs, then open the database in the background
+    // Each tab is built the first time it is selected once the database is ready (see buildSelectedTab).
     public MainFrame() {
         setTitle("Oak Donuts (OD) - Menu & Ordering System");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setSize(800, 600);
         setLocationRelativeTo(null);
 
-        db = new DatabaseManager();
-        cart = new ArrayList<>();
+        // BUSY INDICATOR BLOCK - shown while the database opens, then while database work is running in the background
+        busyBar = new JProgressBar();
+        busyBar.setIndeterminate(true);
 
         tabs = new JTabbedPane();
-        tabs.addTab("Menu", createMenuTab());
-        tabs.addTab("Options", createOrderTab());
-        tabs.addTab("Order Summary", createHistoryTab());
-        tabs.addTab("Friends Orders", createFriendsOrdersTab());
-
-        add(tabs);
+        addLazyTab("Menu", this::createMenuTab);
+        addLazyTab("Options", this::createOrderTab);
+        addLazyTab("Order Summary", this::createHistoryTab);
+        addLazyTab("Recent Orders", this::createRecentOrdersTab);
+        addLazyTab("Kitchen", this::createKitchenTab);
+        addLazyTab("Reports", this::createReportsTab);
+        addLazyTab("Diagnostics", this::createDiagnosticsTab);
+        tabs.addChangeListener(e -> buildSelectedTab());
+
+        add(tabs, BorderLayout.CENTER);
+        add(busyBar, BorderLayout.SOUTH);
         setVisible(true);
 
         addWindowListener(new java.awt.event.WindowAdapter() {
             public void windowClosing(java.awt.event.WindowEvent e) {
-                db.close();
+                shutdown();
                 System.exit(0);
             }
         });
+        openDatabase();
+    }
+
+    // PAINT - the first paint is the "first paint" startup mark
+    public void paint(Graphics g) {
+        super.paint(g);
+        if (!painted) {
+            painted = true;
+            startupMark("firstPaint");
+        }
+    }
+
+    // OPEN DATABASE - boot Derby, replay the order journal and load the kitchen queue off the event dispatch thread
+    private void openDatabase() {
+        Thread.ofPlatform().name("oak-db-open").start(() -> {
+            DatabaseManager db = openStoreDatabase();
+            JournaledOrderWriter orderWriter = openOrderJournal(db);
+            KitchenQueue kitchenQueue = new KitchenQueue(db);
+            SwingUtilities.invokeLater(() -> databaseReady(db, orderWriter, kitchenQueue));
+        });
+    }
+
+    // DATABASE READY - wire up the data layer on the event dispatch thread, then build the tab being shown
+    private void databaseReady(DatabaseManager db, JournaledOrderWriter orderWriter, KitchenQueue kitchenQueue) {
+        this.db = db;
+        this.orderWriter = orderWriter;
+        this.kitchenQueue = kitchenQueue;
+        db.addOrderChangeListener(orderDetailsCache::evict);
+        asyncDb = new AsyncDatabase(db);
+        asyncDb.setBusyListener(busy -> SwingUtilities.invokeLater(() -> busyBar.setVisible(asyncDb.isBusy())));
+        changeBatcher = new ChangeBatcher(db.getChanges());
+        startArchiving(db, () -> SwingUtilities.invokeLater(this::loadOrders));
+        busyBar.setVisible(asyncDb.isBusy());
+        buildSelectedTab();
+        startupMark("firstInteractive");
+        if (Boolean.getBoolean("oak.exitAfterStartup")) {
+            // queued behind the repaint the new tab requested
+            SwingUtilities.invokeLater(() -> {
+                shutdown();
+                System.exit(0);
+            });
+        }
+    }
+
+    // SHUTDOWN - flush and close the data layer; nothing to do if the window closes before the database opened
+    private void shutdown() {
+        if (db == null) return;
+        orderWriter.close();
+        kitchenQueue.close();
+        asyncDb.shutdown();
+        db.close();
+    }
+
+    // LAZY TABS BLOCK - a tab starts as a placeholder and is replaced by its real content on first selection
+    private void addLazyTab(String title, Supplier<JPanel> factory) {
+        JPanel placeholder = new JPanel(new BorderLayout());
+        placeholder.add(new JLabel("Opening the database...", SwingConstants.CENTER), BorderLayout.CENTER);
+        tabs.addTab(title, placeholder);
+        tabFactories.add(factory);
+    }
+
+    private void buildSelectedTab() {
+        int index = tabs.getSelectedIndex();
+        if (db == null || index < 0 || tabFactories.get(index) == null) return;
+        OperationTimer.Timing timing = db.getMetrics().start("ui.buildTab");
+        Supplier<JPanel> factory = tabFactories.set(index, null);
+        tabs.setComponentAt(index, factory.get());
+        timing.stop();
+    }
+
+    // WHEN SHOWN - run onShow each time the component becomes visible on screen (its tab selected) and onHide when
+    // it stops being visible; works for tabs built after they were selected, unlike a tab change listener
+    private static void whenShown(JComponent component, Runnable onShow, Runnable onHide) {
+        component.addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) == 0) return;
+            if (component.isShowing()) {
+                onShow.run();
+            } else {
+                onHide.run();
+            }
+        });
+    }
+
+    // STARTUP MARK - with -Doak.startupReport=true, print when a startup milestone was reached, as microseconds since
+    // the epoch so that a launching process (tools.StartupBenchmark) can subtract its own launch time
+    private static void startupMark(String milestone) {
+        if (!Boolean.getBoolean("oak.startupReport")) return;
+        Instant now = Instant.now();
+        System.err.println("oak.startup " + milestone + " " + (now.getEpochSecond() * 1_000_000 + now.getNano() / 1000));
+    }
+
+    // START ARCHIVING - move orders older than -Doak.archiveAfterDays (default 365, 0 turns it off) to the order
+    // archive on a background thread; they stay visible in history, which is reloaded via onArchived afterwards
+    private static void startArchiving(DatabaseManager db, Runnable onArchived) {
+        int days = Integer.getInteger("oak.archiveAfterDays", ARCHIVE_AFTER_DAYS);
+        if (days <= 0) return;
+        Thread.ofPlatform().name("oak-archiver").daemon().start(() -> {
+            if (db.archiveOrders(LocalDate.now().minusDays(days).atStartOfDay()) > 0) onArchived.run();
+        });
+    }
+
+    // STORE DATA DIRECTORY - data/, or with -Doak.store=NAME that store's directory under data/stores, which holds
+    // the store's own database, archive and journal in the layout OrderShards reads every store's orders from
+    private static Path storeDataDirectory() {
+        String store = System.getProperty("oak.store");
+        return store != null ? OrderShards.storeDirectory(STORES_PATH, store) : DATA_PATH;
+    }
+
+    // OPEN STORE DATABASE - the default database, or the store's own one when -Doak.store is set
+    private static DatabaseManager openStoreDatabase() {
+        return System.getProperty("oak.store") != null ? new DatabaseManager(storeDataDirectory()) : new DatabaseManager();
+    }
+
+    // OPEN ORDER JOURNAL - replays orders left over from a crash before the tabs are built; the app cannot run without it
+    private static JournaledOrderWriter openOrderJournal(DatabaseManager db) {
+        try {
+            return JournaledOrderWriter.open(db, storeDataDirectory().resolve(JOURNAL_FILE));
+        } catch (Exception e) {
+            e.printStackTrace();
+            try {
+                SwingUtilities.invokeAndWait(() -> JOptionPane.showMessageDialog(null, "Could not open the order journal: " + e.getMessage()));
+            } catch (Exception dialogError) {
+                dialogError.printStackTrace();
+            }
+            System.exit(1);
+            return null;
+        }
     }
 
     // MENU TAB - display menu items and add/delete items
@@ -57,13 +247,19 @@ public class MainFrame extends JFrame {
         panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
         // MENU TABLE BLOCK
-        menuTableModel = new DefaultTableModel(new String[]{"ID", "Name", "Description", "Price", "Category"}, 0) {
-            public boolean isCellEditable(int r, int c) { return false; }
-        };
+        menuTableModel = new MenuTableModel();
         menuTable = new JTable(menuTableModel);
         JScrollPane scrollPane = new JScrollPane(menuTable);
         panel.add(scrollPane, BorderLayout.CENTER);
 
+        // MENU FILTER BLOCK - search and category chips narrow the table without a database query
+        menuFilterBar = new MenuFilterBar(db.getMenuCatalog());
+        menuFilterBar.addChangeListener(this::loadMenu);
+        panel.add(menuFilterBar, BorderLayout.NORTH);
+
+        // MENU CHANGES BLOCK - added, edited and deleted items update their own rows, whoever made the change
+        changeBatcher.addListener(changes -> applyMenuChanges(changes, menuFilterBar, menuTableModel));
+
         // ADD ITEM FORM BLOCK
         JPanel formPanel = new JPanel(new GridLayout(2, 4, 5, 5));
         formPanel.setBorder(BorderFactory.createTitledBorder("Add New Item"));
@@ -106,13 +302,19 @@ public class MainFrame extends JFrame {
                 }
 
                 double price = Double.parseDouble(priceStr);
-                db.addMenuItem(name, desc, price, category);
-                JOptionPane.showMessageDialog(this, "Item added successfully!");
-                loadMenu();
-                nameField.setText("");
-                descField.setText("");
-                priceField.setText("");
-                categoryField.setText("");
+                addBtn.setEnabled(false);
+                asyncDb.addMenuItem(name, desc, price, category).whenCompleteAsync((result, error) -> {
+                    addBtn.setEnabled(true);
+                    if (error != null) {
+                        JOptionPane.showMessageDialog(this, "Error: " + error.getMessage());
+                        return;
+                    }
+                    JOptionPane.showMessageDialog(this, "Item added successfully!");
+                    nameField.setText("");
+                    descField.setText("");
+                    priceField.setText("");
+                    categoryField.setText("");
+                }, EDT);
             } catch (NumberFormatException ex) {
                 JOptionPane.showMessageDialog(this, "Price must be a valid number");
             } catch (Exception ex) {
@@ -125,9 +327,7 @@ public class MainFrame extends JFrame {
         deleteBtn.addActionListener(e -> {
             int row = menuTable.getSelectedRow();
             if (row >= 0) {
-                int id = (int) menuTableModel.getValueAt(row, 0);
-                db.deleteMenuItem(id);
-                loadMenu();
+                asyncDb.deleteMenuItem(menuTableModel.getItem(row).id);
             }
         });
 
@@ -151,9 +351,14 @@ public class MainFrame extends JFrame {
         // MENU LIST BLOCK - left side with available items
         JPanel leftPanel = new JPanel(new BorderLayout());
         leftPanel.setBorder(BorderFactory.createTitledBorder("Available Items"));
-        JList<MenuItem> menuList = new JList<>();
+        MenuTableModel menuListModel = new MenuTableModel();
+        JList<MenuItem> menuList = new JList<>(menuListModel);
         menuList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         leftPanel.add(new JScrollPane(menuList), BorderLayout.CENTER);
+        MenuFilterBar optionsFilterBar = new MenuFilterBar(db.getMenuCatalog());
+        optionsFilterBar.addChangeListener(() -> menuListModel.setItems(optionsFilterBar.getMatches()));
+        leftPanel.add(optionsFilterBar, BorderLayout.NORTH);
+        changeBatcher.addListener(changes -> applyMenuChanges(changes, optionsFilterBar, menuListModel));
 
         // ADD TO CART BUTTON BLOCK
         JButton addToCartBtn = new JButton("Add to Cart");
@@ -161,7 +366,6 @@ public class MainFrame extends JFrame {
             MenuItem selected = menuList.getSelectedValue();
             if (selected != null) {
                 cart.add(selected);
-                updateCartDisplay();
             }
         });
         leftPanel.add(addToCartBtn, BorderLayout.SOUTH);
@@ -169,9 +373,8 @@ public class MainFrame extends JFrame {
         // SHOPPING CART BLOCK - right side with cart items
         JPanel rightPanel = new JPanel(new BorderLayout());
         rightPanel.setBorder(BorderFactory.createTitledBorder("Shopping Cart"));
-        cartTableModel = new DefaultTableModel(new String[]{"Item", "Price"}, 0) {
-            public boolean isCellEditable(int r, int c) { return false; }
-        };
+        cartTableModel = new CartTableModel(cart);
+        cartTableModel.addTableModelListener(e -> updateCartTotal());
         cartTable = new JTable(cartTableModel);
         rightPanel.add(new JScrollPane(cartTable), BorderLayout.CENTER);
 
@@ -180,8 +383,7 @@ public class MainFrame extends JFrame {
         removeBtn.addActionListener(e -> {
             int row = cartTable.getSelectedRow();
             if (row >= 0) {
-                cart.remove(row);
-                updateCartDisplay();
+                cart.removeOne(row);
             }
         });
 
@@ -196,14 +398,23 @@ public class MainFrame extends JFrame {
                 JOptionPane.showMessageDialog(this, "Cart is empty!");
                 return;
             }
-            double total = cart.stream().mapToDouble(item -> item.price).sum();
-            JOptionPane.showMessageDialog(this, "Total: $" + String.format("%.2f", total));
-            String transactionId = "OD-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+            long totalCents = cart.getTotalCents();
+            JOptionPane.showMessageDialog(this, "Total: " + CartTableModel.formatCents(totalCents));
+            String transactionId = transactionIds.next();
             String date = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-            db.createOrder(transactionId, date, total, cart);
+            // SAVE ORDER BLOCK - cart is emptied right away and restored if the save fails
+            OperationTimer.Timing timing = db.getMetrics().start("ui.checkout");
+            List<Cart.Line> lines = cart.snapshot();
             cart.clear();
-            updateCartDisplay();
-            loadOrders();
+            // the history table refreshes from the journal flush listener once the order reaches the database
+            asyncDb.submit(() -> orderWriter.placeOrder(transactionId, date, totalCents / 100.0, Cart.toOrderLines(lines))).thenAcceptAsync(saved -> {
+                if (!saved) timing.fail();
+                timing.stop();
+                if (!saved) {
+                    cart.addAll(lines);
+                    JOptionPane.showMessageDialog(this, "Checkout failed - the order was not saved.");
+                }
+            }, EDT);
         });
 
         JPanel cartBottomPanel = new JPanel(new BorderLayout());
@@ -219,21 +430,14 @@ public class MainFrame extends JFrame {
         containerPanel.add(rightPanel);
         panel.add(containerPanel, BorderLayout.CENTER);
 
-        menuList.setListData(db.getMenuItems().toArray(new MenuItem[0]));
-        updateCartDisplay();
+        menuListModel.setItems(optionsFilterBar.getMatches());
 
         return panel;
     }
 
-    // UPDATE CART DISPLAY - refresh cart table and total
-    private void updateCartDisplay() {
-        cartTableModel.setRowCount(0);
-        double total = 0;
-        for (MenuItem item : cart) {
-            cartTableModel.addRow(new Object[]{item.name, "$" + String.format("%.2f", item.price)});
-            total += item.price;
-        }
-        cartTotalLabel.setText("Total: $" + String.format("%.2f", total));
+    // UPDATE CART TOTAL - the cart keeps a running total, so this is just a label update
+    private void updateCartTotal() {
+        cartTotalLabel.setText("Total: " + CartTableModel.formatCents(cart.getTotalCents()));
     }
 
     // ORDER SUMMARY TAB - display order history and details
@@ -241,11 +445,10 @@ public class MainFrame extends JFrame {
         JPanel panel = new JPanel(new BorderLayout(10, 10));
         panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
-        // ORDERS TABLE BLOCK - left side showing order list
-        ordersTableModel = new DefaultTableModel(new String[]{"Transaction ID", "Date", "Items", "Total", "Status"}, 0) {
-            public boolean isCellEditable(int r, int c) { return false; }
-        };
+        // ORDERS TABLE BLOCK - left side showing order list, paged lazily from the database
+        ordersTableModel = new OrderHistoryTableModel(asyncDb);
         ordersTable = new JTable(ordersTableModel);
+        changeBatcher.addListener(this::applyOrderChanges);
 
         // SPLIT PANE BLOCK - orders on left, details on right
         JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT);
@@ -257,27 +460,23 @@ public class MainFrame extends JFrame {
         splitPane.setRightComponent(new JScrollPane(orderDetailsArea));
         splitPane.setDividerLocation(300);
 
-        // ORDER SELECTION LISTENER BLOCK - display details when order selected
+        // ORDER SELECTION LISTENER BLOCK - display details when order selected, served from the details cache
         ordersTable.getSelectionModel().addListSelectionListener(e -> {
             int row = ordersTable.getSelectedRow();
-            if (row >= 0) {
-                String transactionId = (String) ordersTableModel.getValueAt(row, 0);
-                List<Order> orders = db.getOrders();
-                for (Order order : orders) {
-                    if (order.transactionId.equals(transactionId)) {
-                        StringBuilder details = new StringBuilder();
-                        details.append("=== ORDER DETAILS ===\n\n");
-                        details.append("Transaction ID: ").append(order.transactionId).append("\n");
-                        details.append("Date: ").append(order.date).append("\n");
-                        details.append("Status: ").append(order.status).append("\n");
-                        details.append("Total: $").append(String.format("%.2f", order.totalPrice)).append("\n\n");
-                        details.append("--- ITEMS ---\n");
-                        for (MenuItem item : order.items) {
-                            details.append("• ").append(item.name).append(" - $").append(String.format("%.2f", item.price)).append("\n");
-                        }
-                        orderDetailsArea.setText(details.toString());
-                        break;
+            if (row >= 0 && !e.getValueIsAdjusting()) {
+                String transactionId = ordersTableModel.getTransactionId(row);
+                if (transactionId != null) {
+                    String cached = orderDetailsCache.peek(transactionId);
+                    if (cached != null) {
+                        orderDetailsArea.setText(cached);
+                        return;
                     }
+                    asyncDb.submit(() -> orderDetailsCache.get(transactionId, id -> renderOrderDetails(db.getOrder(id)))).thenAcceptAsync(details -> {
+                        int selected = ordersTable.getSelectedRow();
+                        if (selected >= 0 && transactionId.equals(ordersTableModel.getTransactionId(selected))) {
+                            orderDetailsArea.setText(details != null ? details : "");
+                        }
+                    }, EDT);
                 }
             }
         });
@@ -290,11 +489,9 @@ public class MainFrame extends JFrame {
         deleteBtn.addActionListener(e -> {
             int row = ordersTable.getSelectedRow();
             if (row >= 0) {
-                String transactionId = (String) ordersTableModel.getValueAt(row, 0);
+                String transactionId = ordersTableModel.getTransactionId(row);
                 if (JOptionPane.showConfirmDialog(this, "Delete this order?") == JOptionPane.YES_OPTION) {
-                    db.deleteOrder(transactionId);
-                    loadOrders();
-                    orderDetailsArea.setText("");
+                    asyncDb.deleteOrder(transactionId).thenRunAsync(() -> orderDetailsArea.setText(""), EDT);
                 }
             }
         });
@@ -302,59 +499,364 @@ public class MainFrame extends JFrame {
         actionPanel.add(deleteBtn);
         panel.add(actionPanel, BorderLayout.SOUTH);
 
-        loadOrders();
         return panel;
     }
 
 
-    private void loadMenu() {
-        menuTableModel.setRowCount(0);
-        for (MenuItem item : db.getMenuItems()) {
-            menuTableModel.addRow(new Object[]{item.id, item.name, item.description, "$" + String.format("%.2f", item.price), item.category});
+    // RENDER ORDER DETAILS - format one order for the details pane
+    private String renderOrderDetails(Order order) {
+        if (order == null) return null;
+        StringBuilder details = new StringBuilder();
+        details.append("=== ORDER DETAILS ===\n\n");
+        details.append("Transaction ID: ").append(order.transactionId).append("\n");
+        details.append("Date: ").append(order.date).append("\n");
+        details.append("Status: ").append(order.status).append("\n");
+        details.append("Total: $").append(String.format("%.2f", order.totalPrice)).append("\n\n");
+        details.append("--- ITEMS ---\n");
+        for (MenuItem item : order.items) {
+            details.append("• ").append(item.name).append(" - $").append(String.format("%.2f", item.price)).append("\n");
         }
+        return details.toString();
+    }
+
+    // LOAD MENU - refill the menu table from the catalog, keeping only items that pass the search and category filter
+    private void loadMenu() {
+        OperationTimer.Timing timing = db.getMetrics().start("ui.loadMenu");
+        menuTableModel.setItems(menuFilterBar.getMatches());
+        timing.stop();
+    }
+
+    // APPLY MENU CHANGES - update one filtered menu view row by row; new or emptied categories update the chips first
+    private void applyMenuChanges(List<DataChange> changes, MenuFilterBar filterBar, MenuTableModel model) {
+        if (changes.stream().noneMatch(DataChange::isMenuChange)) return;
+        OperationTimer.Timing timing = db.getMetrics().start("ui.applyMenuChanges");
+        filterBar.refreshCategories();
+        model.apply(changes, filterBar::matches);
+        timing.stop();
+    }
+
+    // APPLY ORDER CHANGES - placed, updated and deleted orders become row inserts, updates and deletes in the history
+    private void applyOrderChanges(List<DataChange> changes) {
+        if (changes.stream().allMatch(DataChange::isMenuChange)) return;
+        OperationTimer.Timing timing = db.getMetrics().start("ui.applyOrderChanges");
+        ordersTableModel.apply(changes);
+        timing.stop();
     }
 
-    // LOAD ORDERS - refresh orders table from database
+    // LOAD ORDERS - refresh orders table from database; timed until the table shows the new count
+    // Nothing to refresh until the Order Summary tab has been built; it loads its first page then.
     private void loadOrders() {
-        ordersTableModel.setRowCount(0);
-        for (Order order : db.getOrders()) {
-            ordersTableModel.addRow(new Object[]{order.transactionId, order.date, order.items.size(), "$" + String.format("%.2f", order.totalPrice), order.status});
-        }
+        if (ordersTableModel == null) return;
+        OperationTimer.Timing timing = db.getMetrics().start("ui.loadOrders");
+        ordersTableModel.refresh().whenComplete((done, error) -> {
+            if (error != null) timing.fail();
+            timing.stop();
+        });
     }
 
-    // FRIENDS ORDERS TAB - display friends' orders with placeholder data
-    private JPanel createFriendsOrdersTab() {
+    // RECENT ORDERS TAB - live feed of orders as they are committed, newest at the top
+    // Rows are appended from the in-memory recent-orders buffer whenever an order-placed event arrives; ORDERS is never queried.
+    private JPanel createRecentOrdersTab() {
         JPanel panel = new JPanel(new BorderLayout(10, 10));
         panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
         // TITLE BLOCK
-        JLabel titleLabel = new JLabel("What Your Friends Ordered");
+        JLabel titleLabel = new JLabel("Recent Orders");
         titleLabel.setFont(new Font("Arial", Font.BOLD, 18));
         panel.add(titleLabel, BorderLayout.NORTH);
 
-        // FRIENDS TABLE BLOCK
-        DefaultTableModel friendsTableModel = new DefaultTableModel(new String[]{"Friend Name", "Items Ordered", "Total", "Date"}, 0) {
+        // RECENT ORDERS TABLE BLOCK
+        DefaultTableModel recentTableModel = new DefaultTableModel(new String[]{"Transaction ID", "Items Ordered", "Total", "Date"}, 0) {
             public boolean isCellEditable(int r, int c) { return false; }
         };
-        JTable friendsTable = new JTable(friendsTableModel);
-        friendsTable.setRowHeight(30);
-
-        // PLACEHOLDER DATA BLOCK
-        friendsTableModel.addRow(new Object[]{"Sarah", "Boston Cream, Classic Glazed", "$6.00", "2025-11-16 14:30"});
-        friendsTableModel.addRow(new Object[]{"Mike", "Chocolate Cake (x2)", "$6.00", "2025-11-16 13:15"});
-        friendsTableModel.addRow(new Object[]{"Emma", "Strawberry Jam", "$3.25", "2025-11-16 12:00"});
-        friendsTableModel.addRow(new Object[]{"Alex", "Vanilla Frosted, Powdered Sugar", "$5.25", "2025-11-16 11:45"});
-        friendsTableModel.addRow(new Object[]{"Jordan", "Maple Glazed (x3)", "$8.25", "2025-11-16 10:30"});
-        friendsTableModel.addRow(new Object[]{"Taylor", "Chocolate Chip", "$3.25", "2025-11-16 09:00"});
-
-        JScrollPane scrollPane = new JScrollPane(friendsTable);
+        JTable recentTable = new JTable(recentTableModel);
+        recentTable.setRowHeight(30);
+
+        // FEED BLOCK - a burst of events schedules a single drain on the EDT, which picks up everything new in the buffer
+        RingBuffer<NewOrder> recentOrders = db.getRecentOrders();
+        AtomicLong nextSequence = new AtomicLong();
+        AtomicBoolean drainScheduled = new AtomicBoolean();
+        Runnable drain = () -> {
+            drainScheduled.set(false);
+            for (RingBuffer.Entry<NewOrder> entry : recentOrders.readFrom(nextSequence.get())) {
+                NewOrder order = entry.item;
+                recentTableModel.insertRow(0, new Object[]{order.transactionId, describeItems(order.lines), "$" + String.format("%.2f", order.totalPrice), order.date});
+                nextSequence.set(entry.sequence + 1);
+            }
+            while (recentTableModel.getRowCount() > recentOrders.getCapacity()) {
+                recentTableModel.removeRow(recentTableModel.getRowCount() - 1);
+            }
+        };
+        db.getOrderPlacedEvents().subscribe(orders -> {
+            if (drainScheduled.compareAndSet(false, true)) SwingUtilities.invokeLater(drain);
+        });
+        drain.run();
+
+        JScrollPane scrollPane = new JScrollPane(recentTable);
         panel.add(scrollPane, BorderLayout.CENTER);
 
         return panel;
     }
 
-    // APPLICATION ENTRY POINT
-    public static void main(String[] args) {
+    // KITCHEN TAB - open orders for the kitchen to start and finish, kept current as orders arrive and change
+    private JPanel createKitchenTab() {
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        // TITLE BLOCK
+        JPanel titlePanel = new JPanel(new BorderLayout());
+        JLabel titleLabel = new JLabel("Kitchen Queue");
+        titleLabel.setFont(new Font("Arial", Font.BOLD, 18));
+        JLabel countsLabel = new JLabel();
+        countsLabel.setFont(new Font("Arial", Font.BOLD, 14));
+        titlePanel.add(titleLabel, BorderLayout.WEST);
+        titlePanel.add(countsLabel, BorderLayout.EAST);
+        panel.add(titlePanel, BorderLayout.NORTH);
+
+        // KITCHEN TABLE BLOCK
+        KitchenTableModel kitchenTableModel = new KitchenTableModel(kitchenQueue, this::describeItems);
+        JTable kitchenTable = new JTable(kitchenTableModel);
+        kitchenTable.setRowHeight(30);
+        kitchenTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        panel.add(new JScrollPane(kitchenTable), BorderLayout.CENTER);
+
+        // REFRESH BLOCK - a burst of queue changes schedules a single refresh on the EDT; the selected order stays selected
+        AtomicBoolean refreshScheduled = new AtomicBoolean();
+        Runnable refresh = () -> {
+            refreshScheduled.set(false);
+            int selected = kitchenTable.getSelectedRow();
+            String selectedId = selected >= 0 ? kitchenTableModel.getTransactionId(selected) : null;
+            kitchenTableModel.refresh();
+            int row = selectedId != null ? kitchenTableModel.findRow(selectedId) : -1;
+            if (row >= 0) kitchenTable.setRowSelectionInterval(row, row);
+            int preparing = kitchenTableModel.getPreparingCount();
+            countsLabel.setText("Preparing: " + preparing + "   Waiting: " + (kitchenTableModel.getRowCount() - preparing));
+        };
+        kitchenQueue.addChangeListener(() -> {
+            if (refreshScheduled.compareAndSet(false, true)) SwingUtilities.invokeLater(refresh);
+        });
+        refresh.run();
+        new Timer(1000, e -> kitchenTableModel.tick()).start();
+
+        // KITCHEN BUTTONS BLOCK - "Start" claims orders, "Ready" completes them, "Rush" moves a waiting order to the front
+        JButton startNextBtn = new JButton("Start Next");
+        startNextBtn.addActionListener(e -> {
+            if (kitchenQueue.claimNext() == null) JOptionPane.showMessageDialog(this, "No orders waiting.");
+        });
+        JButton startBtn = new JButton("Start Selected");
+        startBtn.addActionListener(e -> {
+            int row = kitchenTable.getSelectedRow();
+            if (row < 0 || kitchenTableModel.isPreparing(row)) {
+                JOptionPane.showMessageDialog(this, "Select a waiting order to start.");
+                return;
+            }
+            if (!kitchenQueue.claim(kitchenTableModel.getTransactionId(row))) JOptionPane.showMessageDialog(this, "That order was already started.");
+        });
+        JButton rushBtn = new JButton("Rush");
+        rushBtn.addActionListener(e -> {
+            int row = kitchenTable.getSelectedRow();
+            if (row < 0 || kitchenTableModel.isPreparing(row)) {
+                JOptionPane.showMessageDialog(this, "Select a waiting order to rush.");
+                return;
+            }
+            kitchenQueue.rush(kitchenTableModel.getTransactionId(row));
+        });
+        JButton readyBtn = new JButton("Ready");
+        readyBtn.addActionListener(e -> {
+            int row = kitchenTable.getSelectedRow();
+            if (row < 0 || !kitchenTableModel.isPreparing(row)) {
+                JOptionPane.showMessageDialog(this, "Select an order being prepared.");
+                return;
+            }
+            kitchenQueue.complete(kitchenTableModel.getTransactionId(row));
+        });
+        JPanel buttonPanel = new JPanel(new FlowLayout());
+        buttonPanel.add(startNextBtn);
+        buttonPanel.add(startBtn);
+        buttonPanel.add(rushBtn);
+        buttonPanel.add(readyBtn);
+        panel.add(buttonPanel, BorderLayout.SOUTH);
+
+        return panel;
+    }
+
+    // DESCRIBE ITEMS - "Boston Cream, Maple Glazed (x3)" from an order's lines, by the names they were sold under;
+    // the menu is only asked about lines saved without a name
+    private String describeItems(List<OrderLine> lines) {
+        StringBuilder text = new StringBuilder();
+        for (OrderLine line : lines) {
+            String name = line.name;
+            if (name == null) {
+                MenuItem item = db.getMenuCatalog().getItem(line.menuItemId);
+                name = item != null ? item.name : "Item #" + line.menuItemId;
+            }
+            if (text.length() > 0) text.append(", ");
+            text.append(name);
+            if (line.quantity > 1) text.append(" (x").append(line.quantity).append(")");
+        }
+        return text.toString();
+    }
+
+    // REPORTS TAB - sales by hour, item and category, read from the rollup tables
+    private JPanel createReportsTab() {
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        // PERIOD SELECTOR BLOCK
+        JPanel controlPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        JComboBox<String> periodBox = new JComboBox<>(new String[]{"Today", "This week"});
+        JButton refreshBtn = new JButton("Refresh");
+        JLabel totalsLabel = new JLabel();
+        totalsLabel.setFont(new Font("Arial", Font.BOLD, 14));
+        controlPanel.add(new JLabel("Period:"));
+        controlPanel.add(periodBox);
+        controlPanel.add(refreshBtn);
+        controlPanel.add(totalsLabel);
+        panel.add(controlPanel, BorderLayout.NORTH);
+
+        // REPORT TABLES BLOCK - items per hour on top, categories below
+        DefaultTableModel hourlyItemsModel = new DefaultTableModel(new String[]{"Hour", "Item", "Sold", "Revenue"}, 0) {
+            public boolean isCellEditable(int r, int c) { return false; }
+        };
+        DefaultTableModel categoryModel = new DefaultTableModel(new String[]{"Category", "Sold", "Revenue"}, 0) {
+            public boolean isCellEditable(int r, int c) { return false; }
+        };
+        JPanel hourlyPanel = new JPanel(new BorderLayout());
+        hourlyPanel.setBorder(BorderFactory.createTitledBorder("Donuts Sold per Item per Hour"));
+        hourlyPanel.add(new JScrollPane(new JTable(hourlyItemsModel)), BorderLayout.CENTER);
+        JPanel categoryPanel = new JPanel(new BorderLayout());
+        categoryPanel.setBorder(BorderFactory.createTitledBorder("Revenue by Category"));
+        categoryPanel.add(new JScrollPane(new JTable(categoryModel)), BorderLayout.CENTER);
+        JSplitPane splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT, hourlyPanel, categoryPanel);
+        splitPane.setResizeWeight(0.65);
+        panel.add(splitPane, BorderLayout.CENTER);
+
+        // LOAD REPORTS BLOCK - the period runs from the start of today or of this week (Monday) up to now
+        SalesReports reports = db.getSalesReports();
+        Runnable loadReports = () -> {
+            LocalDate today = LocalDate.now();
+            LocalDateTime from = periodBox.getSelectedIndex() == 0 ? today.atStartOfDay() : today.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).atStartOfDay();
+            LocalDateTime to = today.plusDays(1).atStartOfDay();
+            asyncDb.submit(() -> reports.getItemSalesByHour(from, to)).thenAcceptAsync(sales -> {
+                hourlyItemsModel.setRowCount(0);
+                for (ItemSales item : sales) {
+                    hourlyItemsModel.addRow(new Object[]{item.hour.substring(0, 16), item.name, item.quantity, "$" + String.format("%.2f", item.revenue)});
+                }
+            }, EDT);
+            asyncDb.submit(() -> reports.getCategorySales(from, to)).thenAcceptAsync(sales -> {
+                categoryModel.setRowCount(0);
+                for (CategorySales category : sales) {
+                    categoryModel.addRow(new Object[]{category.category, category.quantity, "$" + String.format("%.2f", category.revenue)});
+                }
+            }, EDT);
+            asyncDb.submit(() -> reports.getHourlySales(from, to)).thenAcceptAsync(hours -> {
+                int orders = 0;
+                double revenue = 0;
+                for (HourlySales hour : hours) {
+                    orders += hour.orderCount;
+                    revenue += hour.revenue;
+                }
+                totalsLabel.setText("   Orders: " + orders + "   Revenue: $" + String.format("%.2f", revenue));
+            }, EDT);
+        };
+        refreshBtn.addActionListener(e -> loadReports.run());
+        periodBox.addActionListener(e -> loadReports.run());
+        whenShown(panel, loadReports, () -> {});
+
+        return panel;
+    }
+
+    // DIAGNOSTICS TAB - live latency of every database call and UI action, refreshed each second while shown
+    // Percentiles are since startup except the last column, which covers only the last DIAGNOSTICS_WINDOW refreshes.
+    private JPanel createDiagnosticsTab() {
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        MetricsRegistry metrics = db.getMetrics();
+
+        // METRICS TABLE BLOCK
+        DefaultTableModel metricsModel = new DefaultTableModel(new String[]{"Operation", "Calls", "Errors", "Mean ms", "p50 ms", "p99 ms", "Max ms", "p99 ms (10 s)"}, 0) {
+            public boolean isCellEditable(int r, int c) { return false; }
+        };
+        panel.add(new JScrollPane(new JTable(metricsModel)), BorderLayout.CENTER);
+
+        // DUMP BUTTON BLOCK - writes the same numbers, plus p90 and p99.9, as JSON
+        JPanel bottomPanel = new JPanel(new BorderLayout());
+        JLabel countersLabel = new JLabel();
+        JButton dumpBtn = new JButton("Dump Snapshot...");
+        dumpBtn.addActionListener(e -> {
+            JFileChooser chooser = new JFileChooser();
+            chooser.setSelectedFile(new File("oak-metrics-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".json"));
+            if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+            try {
+                metrics.dump(chooser.getSelectedFile().toPath());
+            } catch (Exception ex) {
+                ex.printStackTrace();
+                JOptionPane.showMessageDialog(this, "Could not write the snapshot: " + ex.getMessage());
+            }
+        });
+        bottomPanel.add(countersLabel, BorderLayout.WEST);
+        bottomPanel.add(dumpBtn, BorderLayout.EAST);
+        panel.add(bottomPanel, BorderLayout.SOUTH);
+
+        // REFRESH BLOCK - older snapshots are kept so the last column can subtract the one from 10 seconds ago
+        ArrayDeque<Map<String, LatencyHistogram.Snapshot>> history = new ArrayDeque<>();
+        Timer refreshTimer = new Timer(1000, e -> {
+            Map<String, LatencyHistogram.Snapshot> current = new HashMap<>();
+            Map<String, LatencyHistogram.Snapshot> windowStart = history.peekFirst();
+            metricsModel.setRowCount(0);
+            for (OperationTimer.Snapshot timer : metrics.snapshotTimers()) {
+                LatencyHistogram.Snapshot latency = timer.latency;
+                current.put(timer.name, latency);
+                LatencyHistogram.Snapshot earlier = windowStart != null ? windowStart.get(timer.name) : null;
+                LatencyHistogram.Snapshot recent = earlier != null ? latency.minus(earlier) : latency;
+                metricsModel.addRow(new Object[]{timer.name, latency.count, timer.errors, millis(latency.mean()), millis(latency.percentile(50)),
+                        millis(latency.percentile(99)), millis(latency.maxNanos), recent.count > 0 ? millis(recent.percentile(99)) : "-"});
+            }
+            history.addLast(current);
+            if (history.size() > DIAGNOSTICS_WINDOW) history.removeFirst();
+            StringBuilder counters = new StringBuilder();
+            metrics.snapshotCounters().forEach((name, value) -> counters.append(name).append(": ").append(value).append("   "));
+            countersLabel.setText(counters.toString());
+        });
+        refreshTimer.setInitialDelay(0);
+        whenShown(panel, refreshTimer::start, refreshTimer::stop);
+
+        return panel;
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3f", MetricsRegistry.millis(nanos));
+    }
+
+    // APPLICATION ENTRY POINT - "--headless [--port N] [--bind ADDRESS]" serves orders over HTTP instead of opening
+    // the window. The server listens on localhost only unless --bind is given; --bind 0.0.0.0 lets the store's other
+    // counters and kiosks reach it (see server.OrderServer for the endpoints).
+    // -Doak.store=NAME runs as that store, on its own database under data/stores (tools.StoreReport reads them all).
+    // -Doak.exitAfterStartup=true quits as soon as the app is interactive: used to train the AppCDS archive
+    // (gradle appCds) and by tools.StartupBenchmark together with -Doak.startupReport=true.
+    public static void main(String[] args) throws Exception {
+        startupMark("main");
+        List<String> options = List.of(args);
+        if (options.contains("--headless")) {
+            int portIndex = options.indexOf("--port");
+            int port = portIndex >= 0 ? Integer.parseInt(options.get(portIndex + 1)) : 8080;
+            int bindIndex = options.indexOf("--bind");
+            String bindAddress = bindIndex >= 0 ? options.get(bindIndex + 1) : "localhost";
+            DatabaseManager db = openStoreDatabase();
+            JournaledOrderWriter orderWriter = JournaledOrderWriter.open(db, storeDataDirectory().resolve(JOURNAL_FILE));
+            startArchiving(db, () -> {});
+            OrderServer server = new OrderServer(db, orderWriter, bindAddress, port, 64);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.stop();
+                orderWriter.close();
+                db.close();
+            }));
+            server.start();
+            System.out.println("Oak Donuts order server listening on http://" + bindAddress + ":" + server.getPort());
+            startupMark("firstInteractive");
+            if (Boolean.getBoolean("oak.exitAfterStartup")) System.exit(0);
+            return;
+        }
         SwingUtilities.invokeLater(() -> new MainFrame());
     }
 }
@@ -0,0 +1,324 @@
+package com.oakdonuts.archive;
+
+import com.oakdonuts.models.NewOrder;
+import com.oakdonuts.models.OrderLine;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// ArchiveSegment - one month of archived orders in an immutable, compressed, column-oriented file
+// Layout (big-endian):
+//   header     MAGIC, VERSION, order count, line count, first and last order date (epoch seconds)
+//   directory  per column: offset, compressed length, raw length
+//   columns    each Deflate-compressed on its own, so a reader only inflates the columns it needs
+// Orders are stored oldest first (by date, then ID); their lines follow the same order, LINE_COUNT says how many
+// belong to each order. Dates are delta-encoded and small integers are varints, which Deflate then squeezes well.
+// Version 2 added ITEM_NAME, the item name each line was sold under; version 1 segments are still read, with no names.
+class ArchiveSegment {
+    private static final int MAGIC = 0x4F414B41; // "OAKA"
+    private static final int VERSION = 2;
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final Comparator<NewOrder> OLDEST_FIRST = Comparator.comparing((NewOrder order) -> order.date).thenComparing(order -> order.transactionId);
+
+    // COLUMNS BLOCK - order columns, then line columns
+    static final int ID = 0;
+    static final int DATE = 1;
+    static final int TOTAL = 2;
+    static final int STATUS = 3;
+    static final int LINE_COUNT = 4;
+    static final int MENU_ITEM = 5;
+    static final int QUANTITY = 6;
+    static final int UNIT_PRICE = 7;
+    static final int ITEM_NAME = 8;
+    private static final int COLUMNS = 9;
+    private static final int VERSION_1_COLUMNS = 8;
+
+    final Path file;
+    final int orderCount;
+    final int lineCount;
+    final LocalDateTime firstDate;
+    final LocalDateTime lastDate;
+    private final int columnCount;
+    private final long[] offsets;
+    private final int[] compressedLengths;
+    private final int[] rawLengths;
+
+    // OPEN - read the header and directory only
+    static ArchiveSegment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(8);
+            readFully(channel, magic, 0);
+            magic.flip();
+            if (magic.getInt() != MAGIC) throw new IOException(file + " is not an order archive segment");
+            int version = magic.getInt();
+            if (version != 1 && version != VERSION) throw new IOException(file + " has unsupported segment version " + version);
+            int columnCount = version == 1 ? VERSION_1_COLUMNS : COLUMNS;
+            ByteBuffer header = ByteBuffer.allocate(headerSize(columnCount));
+            readFully(channel, header, 0);
+            header.flip();
+            header.position(8);
+            return new ArchiveSegment(file, header, columnCount);
+        }
+    }
+
+    private ArchiveSegment(Path file, ByteBuffer header, int columnCount) {
+        this.file = file;
+        this.columnCount = columnCount;
+        this.offsets = new long[columnCount];
+        this.compressedLengths = new int[columnCount];
+        this.rawLengths = new int[columnCount];
+        this.orderCount = header.getInt();
+        this.lineCount = header.getInt();
+        this.firstDate = LocalDateTime.ofEpochSecond(header.getLong(), 0, ZoneOffset.UTC);
+        this.lastDate = LocalDateTime.ofEpochSecond(header.getLong(), 0, ZoneOffset.UTC);
+        for (int c = 0; c < columnCount; c++) {
+            offsets[c] = header.getLong();
+            compressedLengths[c] = header.getInt();
+            rawLengths[c] = header.getInt();
+        }
+    }
+
+    private static int headerSize(int columnCount) {
+        return 4 + 4 + 4 + 4 + 8 + 8 + columnCount * (8 + 4 + 4);
+    }
+
+    // OVERLAPS - whether any order in this segment may fall in [from, to); null bounds are open
+    boolean overlaps(LocalDateTime from, LocalDateTime to) {
+        return (from == null || !lastDate.isBefore(from)) && (to == null || firstDate.isBefore(to));
+    }
+
+    // READ IDS - just the ID column, for point lookups
+    String[] readIds() throws IOException {
+        DataInputStream ids = column(ID);
+        String[] result = new String[orderCount];
+        for (int i = 0; i < orderCount; i++) {
+            result[i] = ids.readUTF();
+        }
+        return result;
+    }
+
+    // READ ORDERS - every order with its lines, oldest first
+    List<NewOrder> readOrders() throws IOException {
+        DataInputStream ids = column(ID);
+        DataInputStream dates = column(DATE);
+        DataInputStream totals = column(TOTAL);
+        DataInputStream statuses = column(STATUS);
+        DataInputStream lineCounts = column(LINE_COUNT);
+        DataInputStream menuItems = column(MENU_ITEM);
+        DataInputStream quantities = column(QUANTITY);
+        DataInputStream unitPrices = column(UNIT_PRICE);
+        DataInputStream itemNames = columnCount > ITEM_NAME ? column(ITEM_NAME) : null;
+
+        String[] statusNames = new String[statuses.readInt()];
+        for (int i = 0; i < statusNames.length; i++) {
+            statusNames[i] = statuses.readUTF();
+        }
+        // name code 0 is a line without a name, n is the dictionary's (n-1)th entry
+        String[] nameDictionary = new String[itemNames != null ? itemNames.readInt() : 0];
+        for (int i = 0; i < nameDictionary.length; i++) {
+            nameDictionary[i] = itemNames.readUTF();
+        }
+        List<NewOrder> orders = new ArrayList<>(orderCount);
+        long date = 0;
+        for (int i = 0; i < orderCount; i++) {
+            String transactionId = ids.readUTF();
+            date += readVarLong(dates);
+            double total = totals.readDouble();
+            String status = statusNames[statuses.readUnsignedByte()];
+            int lines = (int) readVarLong(lineCounts);
+            List<OrderLine> orderLines = new ArrayList<>(lines);
+            for (int j = 0; j < lines; j++) {
+                int menuItemId = (int) readVarLong(menuItems);
+                int quantity = (int) readVarLong(quantities);
+                double unitPrice = unitPrices.readDouble();
+                int nameCode = itemNames != null ? (int) readVarLong(itemNames) : 0;
+                orderLines.add(new OrderLine(menuItemId, quantity, Double.isNaN(unitPrice) ? null : unitPrice, nameCode > 0 ? nameDictionary[nameCode - 1] : null));
+            }
+            orders.add(new NewOrder(transactionId, formatDate(LocalDateTime.ofEpochSecond(date, 0, ZoneOffset.UTC)), total, orderLines, status));
+        }
+        return orders;
+    }
+
+    // WRITE - write the orders to a new segment file, replacing any file already there only once it is complete
+    static ArchiveSegment write(Path file, List<NewOrder> orders) throws IOException {
+        List<NewOrder> sorted = new ArrayList<>(orders);
+        sorted.sort(OLDEST_FIRST);
+        ColumnWriter[] columns = new ColumnWriter[COLUMNS];
+        for (int c = 0; c < COLUMNS; c++) {
+            columns[c] = new ColumnWriter();
+        }
+        // STATUS DICTIONARY BLOCK - a handful of distinct statuses, stored once and referenced by a byte
+        Map<String, Integer> statusCodes = new LinkedHashMap<>();
+        for (NewOrder order : sorted) {
+            statusCodes.putIfAbsent(order.status, statusCodes.size());
+        }
+        if (statusCodes.size() > 256) throw new IOException("Too many distinct order statuses to archive");
+        columns[STATUS].out.writeInt(statusCodes.size());
+        for (String status : statusCodes.keySet()) {
+            columns[STATUS].out.writeUTF(status);
+        }
+        // NAME DICTIONARY BLOCK - each distinct item name once, lines refer to it by a varint code
+        Map<String, Integer> nameCodes = new LinkedHashMap<>();
+        for (NewOrder order : sorted) {
+            for (OrderLine line : order.lines) {
+                if (line.name != null) nameCodes.putIfAbsent(line.name, nameCodes.size() + 1);
+            }
+        }
+        columns[ITEM_NAME].out.writeInt(nameCodes.size());
+        for (String name : nameCodes.keySet()) {
+            columns[ITEM_NAME].out.writeUTF(name);
+        }
+
+        long previousDate = 0;
+        int lineCount = 0;
+        for (NewOrder order : sorted) {
+            long date = epochSecond(order.date);
+            columns[ID].out.writeUTF(order.transactionId);
+            writeVarLong(columns[DATE].out, date - previousDate);
+            previousDate = date;
+            columns[TOTAL].out.writeDouble(order.totalPrice);
+            columns[STATUS].out.writeByte(statusCodes.get(order.status));
+            writeVarLong(columns[LINE_COUNT].out, order.lines.size());
+            for (OrderLine line : order.lines) {
+                writeVarLong(columns[MENU_ITEM].out, line.menuItemId);
+                writeVarLong(columns[QUANTITY].out, line.quantity);
+                columns[UNIT_PRICE].out.writeDouble(line.unitPrice != null ? line.unitPrice : Double.NaN);
+                writeVarLong(columns[ITEM_NAME].out, line.name != null ? nameCodes.get(line.name) : 0);
+                lineCount++;
+            }
+        }
+
+        // FILE BLOCK - header and directory, then the compressed columns; written to a temporary file and moved into place
+        ByteBuffer header = ByteBuffer.allocate(headerSize(COLUMNS));
+        header.putInt(MAGIC).putInt(VERSION).putInt(sorted.size()).putInt(lineCount);
+        header.putLong(sorted.isEmpty() ? 0 : epochSecond(sorted.get(0).date));
+        header.putLong(sorted.isEmpty() ? 0 : epochSecond(sorted.get(sorted.size() - 1).date));
+        byte[][] compressed = new byte[COLUMNS][];
+        long offset = headerSize(COLUMNS);
+        for (int c = 0; c < COLUMNS; c++) {
+            byte[] raw = columns[c].bytes.toByteArray();
+            compressed[c] = deflate(raw);
+            header.putLong(offset).putInt(compressed[c].length).putInt(raw.length);
+            offset += compressed[c].length;
+        }
+        header.flip();
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(channel, header);
+            for (byte[] column : compressed) {
+                writeFully(channel, ByteBuffer.wrap(column));
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return open(file);
+    }
+
+    // COLUMN - inflate one column into memory
+    private DataInputStream column(int c) throws IOException {
+        byte[] compressed = new byte[compressedLengths[c]];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            readFully(channel, ByteBuffer.wrap(compressed), offsets[c]);
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] raw = new byte[rawLengths[c]];
+            int read = 0;
+            while (read < raw.length && !inflater.finished()) {
+                read += inflater.inflate(raw, read, raw.length - read);
+                if (inflater.needsInput()) break;
+            }
+            if (read != raw.length) throw new IOException(file + " column " + c + " is truncated");
+            return new DataInputStream(new ByteArrayInputStream(raw));
+        } catch (DataFormatException e) {
+            throw new IOException(file + " column " + c + " is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    // ENCODING HELPERS BLOCK
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static String formatDate(LocalDateTime date) {
+        return date.format(DATE_FORMAT);
+    }
+
+    static long epochSecond(String date) {
+        return LocalDateTime.parse(date, DATE_FORMAT).toEpochSecond(ZoneOffset.UTC);
+    }
+
+    // VARLONG - 7 bits per byte, high bit set on all but the last; zigzag keeps small negative deltas small
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.writeByte((int) (zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        out.writeByte((int) zigzag);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long zigzag = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.readUnsignedByte();
+            zigzag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) break;
+        }
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) throw new IOException("Unexpected end of archive segment");
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    // ColumnWriter - one column's uncompressed bytes while a segment is being written
+    private static class ColumnWriter {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+    }
+}
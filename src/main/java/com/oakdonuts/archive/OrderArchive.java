@@ -0,0 +1,328 @@
+package com.oakdonuts.archive;
+
+import com.oakdonuts.models.NewOrder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+// OrderArchive - orders moved out of the database, one ArchiveSegment file per month (orders-2024-03.seg)
+// Segments are immutable: adding or removing orders writes a new file for the month and swaps it in under the
+// write lock, so readers always see whole segments. Range scans read the overlapping segments in parallel.
+// An archive without a directory is empty and refuses writes; it stands in when archiving is not configured.
+public class OrderArchive {
+    private static final Pattern SEGMENT_NAME = Pattern.compile("orders-(\\d{4}-\\d{2})\\.seg");
+
+    // NEWEST FIRST - history-list order, by date and then ID, both descending
+    public static final Comparator<NewOrder> NEWEST_FIRST = Comparator.comparing((NewOrder order) -> order.date)
+            .thenComparing(order -> order.transactionId).reversed();
+
+    private final Path directory;
+    private final TreeMap<YearMonth, ArchiveSegment> segments = new TreeMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile Decoded lastDecoded;
+
+    // CONSTRUCTOR - open the segments already in the directory; a missing directory is created on the first write
+    public OrderArchive(Path directory) {
+        this.directory = directory;
+        if (directory == null || !Files.isDirectory(directory)) return;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                Matcher matcher = SEGMENT_NAME.matcher(name);
+                if (matcher.matches()) {
+                    segments.put(YearMonth.parse(matcher.group(1)), ArchiveSegment.open(file));
+                } else if (name.endsWith(".seg.tmp")) {
+                    Files.delete(file); // left by a write that never finished
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    // NONE - an empty archive with nowhere to write
+    public static OrderArchive none() {
+        return new OrderArchive(null);
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    // COUNT ORDERS - from the segment headers, without reading any column
+    public int countOrders() {
+        lock.readLock().lock();
+        try {
+            int count = 0;
+            for (ArchiveSegment segment : segments.values()) {
+                count += segment.orderCount;
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // GET NEWEST DATE - date of the newest archived order ("yyyy-MM-dd HH:mm:ss"), or null if the archive is empty
+    public String getNewestDate() {
+        lock.readLock().lock();
+        try {
+            return segments.isEmpty() ? null : ArchiveSegment.formatDate(segments.lastEntry().getValue().lastDate);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // GET ORDER - point lookup by ID; only the ID column of each segment is inflated until the order is found
+    public NewOrder getOrder(String transactionId) throws IOException {
+        lock.readLock().lock();
+        try {
+            for (ArchiveSegment segment : segments.descendingMap().values()) {
+                int index = indexOf(segment.readIds(), transactionId);
+                if (index >= 0) return segment.readOrders().get(index);
+            }
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // FIND ARCHIVED - which of the given orders are archived already; only segments for their months are read
+    public Set<String> findArchived(Collection<NewOrder> orders) throws IOException {
+        Set<String> archived = new HashSet<>();
+        if (orders.isEmpty()) return archived;
+        lock.readLock().lock();
+        try {
+            Map<YearMonth, List<NewOrder>> byMonth = groupByMonth(orders);
+            for (Map.Entry<YearMonth, List<NewOrder>> entry : byMonth.entrySet()) {
+                ArchiveSegment segment = segments.get(entry.getKey());
+                if (segment == null) continue;
+                Set<String> ids = new HashSet<>(List.of(segment.readIds()));
+                for (NewOrder order : entry.getValue()) {
+                    if (ids.contains(order.transactionId)) archived.add(order.transactionId);
+                }
+            }
+            return archived;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // GET ORDERS - orders dated in [from, to), newest first; null bounds are open
+    // Each overlapping month is decoded on its own fork-join task, then the months are concatenated newest first.
+    public List<NewOrder> getOrders(LocalDateTime from, LocalDateTime to) throws IOException {
+        lock.readLock().lock();
+        try {
+            List<ArchiveSegment> overlapping = new ArrayList<>();
+            for (ArchiveSegment segment : segments.descendingMap().values()) {
+                if (segment.overlaps(from, to)) overlapping.add(segment);
+            }
+            List<List<NewOrder>> months = overlapping.parallelStream()
+                    .map(segment -> inRange(newestFirst(segment), from, to))
+                    .collect(Collectors.toList());
+            List<NewOrder> orders = new ArrayList<>();
+            months.forEach(orders::addAll);
+            return orders;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // GET ORDERS BEFORE - keyset page, newest first, of orders sorting before (date, ID); a null date starts at the newest
+    public List<NewOrder> getOrdersBefore(String beforeDate, String beforeTransactionId, int limit) throws IOException {
+        List<NewOrder> page = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (ArchiveSegment segment : segments.descendingMap().values()) {
+                if (page.size() >= limit) break;
+                if (beforeDate != null && segment.firstDate.isAfter(LocalDateTime.parse(beforeDate.replace(' ', 'T')))) continue;
+                for (NewOrder order : newestFirst(segment)) {
+                    if (beforeDate != null && compareKey(order, beforeDate, beforeTransactionId) >= 0) continue;
+                    page.add(order);
+                    if (page.size() >= limit) break;
+                }
+            }
+            return page;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // GET ORDERS AT - offset page, newest first; whole months before the offset are skipped by their header counts
+    public List<NewOrder> getOrdersAt(int offset, int limit) throws IOException {
+        List<NewOrder> page = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            int skip = offset;
+            for (ArchiveSegment segment : segments.descendingMap().values()) {
+                if (page.size() >= limit) break;
+                if (skip >= segment.orderCount) {
+                    skip -= segment.orderCount;
+                    continue;
+                }
+                List<NewOrder> orders = newestFirst(segment);
+                page.addAll(orders.subList(skip, Math.min(orders.size(), skip + limit - page.size())));
+                skip = 0;
+            }
+            return page;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // FOR EACH ORDER - every archived order, oldest month first; only one month is held in memory at a time
+    public void forEachOrder(Consumer<NewOrder> sink) throws IOException {
+        lock.readLock().lock();
+        try {
+            for (ArchiveSegment segment : segments.values()) {
+                segment.readOrders().forEach(sink);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ADD - merge orders into their months' segments; an order already archived under the same ID is replaced
+    public void add(Collection<NewOrder> orders) throws IOException {
+        if (orders.isEmpty()) return;
+        Path dir = writableDirectory();
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<YearMonth, List<NewOrder>> entry : groupByMonth(orders).entrySet()) {
+                ArchiveSegment existing = segments.get(entry.getKey());
+                Map<String, NewOrder> merged = new LinkedHashMap<>();
+                if (existing != null) {
+                    for (NewOrder order : existing.readOrders()) {
+                        merged.put(order.transactionId, order);
+                    }
+                }
+                for (NewOrder order : entry.getValue()) {
+                    merged.put(order.transactionId, order);
+                }
+                Path file = dir.resolve("orders-" + entry.getKey() + ".seg");
+                segments.put(entry.getKey(), ArchiveSegment.write(file, new ArrayList<>(merged.values())));
+            }
+            lastDecoded = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // REMOVE - take one order out of the archive, rewriting its month; returns the order, or null if not archived
+    public NewOrder remove(String transactionId) throws IOException {
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<YearMonth, ArchiveSegment> entry : segments.entrySet()) {
+                ArchiveSegment segment = entry.getValue();
+                int index = indexOf(segment.readIds(), transactionId);
+                if (index < 0) continue;
+                List<NewOrder> orders = segment.readOrders();
+                NewOrder removed = orders.remove(index);
+                if (orders.isEmpty()) {
+                    Files.delete(segment.file);
+                    segments.remove(entry.getKey());
+                } else {
+                    segments.put(entry.getKey(), ArchiveSegment.write(segment.file, orders));
+                }
+                lastDecoded = null;
+                return removed;
+            }
+            return null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // SEGMENT HELPERS BLOCK
+    // NEWEST FIRST - a segment's orders in history-list order; the last segment read is kept, so paging through
+    // a month one page at a time decodes it once
+    private List<NewOrder> newestFirst(ArchiveSegment segment) {
+        Decoded decoded = lastDecoded;
+        if (decoded != null && decoded.segment == segment) return decoded.orders;
+        try {
+            List<NewOrder> orders = segment.readOrders();
+            Collections.reverse(orders);
+            lastDecoded = new Decoded(segment, Collections.unmodifiableList(orders));
+            return lastDecoded.orders;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<NewOrder> inRange(List<NewOrder> orders, LocalDateTime from, LocalDateTime to) {
+        List<NewOrder> result = new ArrayList<>();
+        for (NewOrder order : orders) {
+            LocalDateTime date = LocalDateTime.parse(order.date.replace(' ', 'T'));
+            if ((from == null || !date.isBefore(from)) && (to == null || date.isBefore(to))) result.add(order);
+        }
+        return result;
+    }
+
+    private static int compareKey(NewOrder order, String date, String transactionId) {
+        int byDate = order.date.compareTo(date);
+        return byDate != 0 ? byDate : order.transactionId.compareTo(transactionId);
+    }
+
+    private static int indexOf(String[] ids, String transactionId) {
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i].equals(transactionId)) return i;
+        }
+        return -1;
+    }
+
+    private static Map<YearMonth, List<NewOrder>> groupByMonth(Collection<NewOrder> orders) {
+        Map<YearMonth, List<NewOrder>> byMonth = new TreeMap<>();
+        for (NewOrder order : orders) {
+            Objects.requireNonNull(order.date, "archived orders need a date");
+            byMonth.computeIfAbsent(YearMonth.parse(order.date.substring(0, 7)), month -> new ArrayList<>()).add(order);
+        }
+        return byMonth;
+    }
+
+    private Path writableDirectory() throws IOException {
+        if (directory == null) throw new IOException("No archive directory configured");
+        return Files.createDirectories(directory);
+    }
+
+    // Decoded - one segment's orders, newest first
+    private static class Decoded {
+        final ArchiveSegment segment;
+        final List<NewOrder> orders;
+
+        Decoded(ArchiveSegment segment, List<NewOrder> orders) {
+            this.segment = segment;
+            this.orders = orders;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.oakdonuts.database;
+
+import com.oakdonuts.models.MenuItem;
+import com.oakdonuts.models.Order;
+import com.oakdonuts.models.OrderSummary;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// AsyncDatabase - runs DatabaseManager calls off the calling thread and hands back CompletableFutures
+// Tasks run on a fixed set of platform threads, one per pooled connection, and queue behind them. Not virtual
+// threads: Derby waits for locks inside synchronized blocks, which pins the carrier, and enough lock waiters pin every
+// carrier so the lock holder never runs again (see ConcurrencyCheck). Queued tasks are also what COALESCE can share.
+public class AsyncDatabase {
+    private final DatabaseManager db;
+    private final ExecutorService executor;
+    private final Map<String, Pending<?>> pendingByKey = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile Consumer<Boolean> busyListener = busy -> { };
+
+    // CONSTRUCTOR - wrap an open DatabaseManager
+    public AsyncDatabase(DatabaseManager db) {
+        this.db = db;
+        this.executor = Executors.newFixedThreadPool(db.getPoolSize(), Thread.ofPlatform().name("oak-db-", 0).daemon().factory());
+    }
+
+    // GET DATABASE - underlying manager, for in-memory reads such as the menu catalog
+    public DatabaseManager getDatabase() {
+        return db;
+    }
+
+    // BUSY LISTENER - called with true when work starts after being idle, and false when the last task finishes
+    public void setBusyListener(Consumer<Boolean> listener) {
+        this.busyListener = listener;
+    }
+
+    // IS BUSY - whether any submitted work has not finished yet
+    public boolean isBusy() {
+        return inFlight.get() > 0;
+    }
+
+    // SUBMIT - run any piece of database work asynchronously
+    public <T> CompletableFuture<T> submit(Supplier<T> work) {
+        if (inFlight.getAndIncrement() == 0) busyListener.accept(true);
+        return CompletableFuture.supplyAsync(work, executor).whenComplete((result, error) -> {
+            if (inFlight.decrementAndGet() == 0) busyListener.accept(false);
+        });
+    }
+
+    // COALESCE - share one queued task between identical requests; a request made after the task has started gets a fresh run
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> coalesce(String key, Supplier<T> work) {
+        while (true) {
+            Pending<?> existing = pendingByKey.get(key);
+            if (existing != null && !existing.started.get()) {
+                return (CompletableFuture<T>) existing.future;
+            }
+            Pending<T> pending = new Pending<>();
+            boolean registered = existing == null ? pendingByKey.putIfAbsent(key, pending) == null : pendingByKey.replace(key, existing, pending);
+            if (!registered) continue;
+            submit(() -> {
+                pending.started.set(true);
+                pendingByKey.remove(key, pending);
+                return work.get();
+            }).whenComplete((result, error) -> {
+                if (error != null) pending.future.completeExceptionally(error);
+                else pending.future.complete(result);
+            });
+            return pending.future;
+        }
+    }
+
+    // MENU OPERATIONS BLOCK
+    public CompletableFuture<Void> addMenuItem(String name, String desc, double price, String category) {
+        return submit(() -> {
+            db.addMenuItem(name, desc, price, category);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> deleteMenuItem(int id) {
+        return submit(() -> {
+            db.deleteMenuItem(id);
+            return null;
+        });
+    }
+
+    // ORDER OPERATIONS BLOCK
+    public CompletableFuture<Boolean> createOrder(String transactionId, String date, double totalPrice, List<MenuItem> items) {
+        return submit(() -> db.createOrder(transactionId, date, totalPrice, items));
+    }
+
+    public CompletableFuture<Void> deleteOrder(String transactionId) {
+        return submit(() -> {
+            db.deleteOrder(transactionId);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Order> getOrder(String transactionId) {
+        return submit(() -> db.getOrder(transactionId));
+    }
+
+    public CompletableFuture<Integer> countOrders() {
+        return coalesce("countOrders", db::countOrders);
+    }
+
+    public CompletableFuture<List<OrderSummary>> getOrderSummariesAfter(String afterDate, String afterTransactionId, int limit) {
+        return submit(() -> db.getOrderSummariesAfter(afterDate, afterTransactionId, limit));
+    }
+
+    public CompletableFuture<List<OrderSummary>> getOrderSummariesAt(int offset, int limit) {
+        return submit(() -> db.getOrderSummariesAt(offset, limit));
+    }
+
+    // SHUTDOWN - let queued work finish, then stop the worker
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Pending - a coalesced task and whether it has begun running
+    private static class Pending<T> {
+        final AtomicBoolean started = new AtomicBoolean();
+        final CompletableFuture<T> future = new CompletableFuture<>();
+    }
+}
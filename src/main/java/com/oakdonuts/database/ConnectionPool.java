@@ -0,0 +1,130 @@
+package com.oakdonuts.database;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+
+// ConnectionPool - bounded pool of JDBC connections, each with its own prepared-statement cache keyed by SQL text
+public class ConnectionPool {
+    private final String url;
+    private final int maxSize;
+    private final Semaphore permits;
+    private final ConcurrentLinkedQueue<PooledConnection> idle = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed;
+
+    // CONSTRUCTOR - connections are opened on demand, never more than maxSize at once
+    public ConnectionPool(String url, int maxSize) {
+        this.url = url;
+        this.maxSize = maxSize;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    // MAX SIZE - most connections that can be open at once
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    // BORROW - take an idle connection or open a new one, waiting while all are in use; close() the result to return it
+    public PooledConnection borrow() throws SQLException {
+        if (closed) throw new SQLException("Connection pool is closed");
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+        try {
+            PooledConnection pooled = idle.poll();
+            return pooled != null ? pooled : new PooledConnection(DriverManager.getConnection(url));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    // RELEASE - reset a returned connection and put it back, or drop it if it is broken or the pool has closed
+    private void release(PooledConnection pooled) {
+        try {
+            Connection conn = pooled.connection;
+            if (!conn.getAutoCommit()) {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+            if (closed || conn.isClosed()) {
+                pooled.closeQuietly();
+            } else {
+                idle.add(pooled);
+            }
+        } catch (SQLException e) {
+            pooled.closeQuietly();
+        } finally {
+            permits.release();
+        }
+    }
+
+    // CLOSE - close idle connections now; borrowed ones are closed as they come back
+    public void close() {
+        closed = true;
+        PooledConnection pooled;
+        while ((pooled = idle.poll()) != null) {
+            pooled.closeQuietly();
+        }
+    }
+
+    // SHUT DOWN DATABASE - close(), then stop the embedded database behind the URL so Derby drops its page cache and
+    // file handles; the next connection boots it again. Only for a pool with nothing borrowed.
+    public void shutDownDatabase() {
+        close();
+        try {
+            DriverManager.getConnection(url.split(";")[0] + ";shutdown=true").close();
+        } catch (SQLException e) {
+            // 08006 is how Derby reports a database it has shut down
+            if (!"08006".equals(e.getSQLState())) e.printStackTrace();
+        }
+    }
+
+    // PooledConnection - a borrowed connection; only the borrowing thread may use it until close()
+    public class PooledConnection implements AutoCloseable {
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        public Connection connection() {
+            return connection;
+        }
+
+        // PREPARE - cached statement for this SQL text, compiled once per connection
+        public PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement stmt = statements.get(sql);
+            if (stmt == null || stmt.isClosed()) {
+                stmt = connection.prepareStatement(sql);
+                statements.put(sql, stmt);
+            } else {
+                stmt.clearParameters();
+                stmt.clearBatch();
+            }
+            return stmt;
+        }
+
+        // CLOSE - return the connection to the pool
+        public void close() {
+            release(this);
+        }
+
+        private void closeQuietly() {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
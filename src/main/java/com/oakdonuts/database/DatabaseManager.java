@@ -1,197 +1,1138 @@
 package com.oakdonuts.database;
 
+import com.oakdonuts.archive.OrderArchive;
+import com.oakdonuts.events.DataChange;
+import com.oakdonuts.events.EventBus;
+import com.oakdonuts.events.RingBuffer;
+import com.oakdonuts.metrics.MetricsRegistry;
+import com.oakdonuts.metrics.OperationTimer;
 import com.oakdonuts.models.MenuItem;
+import com.oakdonuts.models.NewOrder;
 import com.oakdonuts.models.Order;
+import com.oakdonuts.models.OrderLine;
+import com.oakdonuts.models.OrderSummary;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.*;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 // DatabaseManager - handles all database operations for menu items and orders
+// Safe to call from many threads: each call borrows its own pooled connection and cached prepared statements.
 public class DatabaseManager {
-    private Connection conn;
+    private static final int DEFAULT_POOL_SIZE = 8;
+    private static final int MAX_TRANSACTION_ATTEMPTS = 3;
+    private static final int RECENT_ORDERS = 50;
+    private static final int EXPORT_FETCH_SIZE = 500;
+    private static final int ARCHIVE_DELETE_BATCH = 500;
 
-    // CONSTRUCTOR - initialize database connection and create tables
+    private final ConnectionPool pool;
+    private final OrderArchive archive;
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final List<Consumer<String>> orderChangeListeners = new CopyOnWriteArrayList<>();
+    private final MenuCatalog menuCatalog;
+    private final SalesReports salesReports;
+    private final EventBus<List<NewOrder>> orderPlacedEvents = new EventBus<>();
+    private final EventBus<List<DataChange>> changes = new EventBus<>();
+    private final RingBuffer<NewOrder> recentOrders = new RingBuffer<>(RECENT_ORDERS);
+
+    // ORDER QUERY - orders joined to their lines, one row per line, with the prices and names they were sold under;
+    // used for both reading and exporting orders. The menu is only consulted for the description and category, and
+    // for lines saved without a name.
+    // The nested-loop join looks each order's lines up right after reading the order. An order and its lines commit
+    // together, so scans can run at read-committed without showing an order with missing lines. A hash join reads
+    // the lines first, and then an order committed in between shows up with none.
+    private static final String ORDER_SELECT = "SELECT o.TRANSACTION_ID, o.ORDER_DATE, o.TOTAL_PRICE, o.STATUS, oi.MENU_ITEM_ID, oi.QUANTITY, oi.UNIT_PRICE, oi.ITEM_NAME "
+            + "FROM ORDERS o LEFT JOIN ORDER_ITEMS oi --DERBY-PROPERTIES joinStrategy=NESTEDLOOP\n"
+            + "ON oi.TRANSACTION_ID=o.TRANSACTION_ID ";
+
+    // HISTORY LIST QUERY - order columns plus item count, without loading the items themselves
+    private static final String SUMMARY_SELECT = "SELECT o.TRANSACTION_ID, o.ORDER_DATE, "
+            + "(SELECT COALESCE(SUM(oi.QUANTITY), 0) FROM ORDER_ITEMS oi WHERE oi.TRANSACTION_ID=o.TRANSACTION_ID), "
+            + "o.TOTAL_PRICE, o.STATUS FROM ORDERS o ";
+
+    // CONSISTENT READ - Derby's serializable isolation clause, for single-order reads only. On a scan it holds
+    // share locks on everything read until the scan ends, which blocks createOrder while the history is loaded.
+    private static final String CONSISTENT_READ = " WITH RR";
+
+    // ORDER DATE FORMAT - how ORDER_DATE timestamps are passed to and from the rest of the app
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // SEED MENU - sample menu items inserted into an empty database
+    private static final Object[][] SEED_MENU = {
+            {"Classic Glazed", "Traditional glazed donut", 2.50, "glaze"},
+            {"Chocolate Cake", "Rich chocolate cake donut", 3.00, "cake"},
+            {"Vanilla Frosted", "Vanilla frosted with sprinkles", 2.75, "glaze"},
+            {"Strawberry Jam", "Filled with fresh strawberry jam", 3.25, "specialty"},
+            {"Boston Cream", "Cream filled with chocolate top", 3.50, "specialty"},
+            {"Maple Glazed", "Maple flavored donut", 2.75, "glaze"},
+            {"Chocolate Chip", "Chocolate cake with chips", 3.25, "cake"},
+            {"Powdered Sugar", "Classic powdered sugar donut", 2.50, "glaze"},
+    };
+
+    // NEWEST FIRST - history-list order for rows merged from the database and the archive, or from several shards
+    static final Comparator<Order> NEWEST_FIRST = Comparator.comparing((Order order) -> order.date)
+            .thenComparing(order -> order.transactionId).reversed();
+    static final Comparator<OrderSummary> SUMMARY_NEWEST_FIRST = Comparator.comparing((OrderSummary summary) -> summary.date)
+            .thenComparing(summary -> summary.transactionId).reversed();
+
+    // CONSTRUCTOR - initialize database connection and create tables; old orders are archived under data/archive
     public DatabaseManager() {
-        try {
-            conn = DriverManager.getConnection("jdbc:derby:./data/OakDonutsDB;create=true");
-            createTables();
+        this("jdbc:derby:./data/OakDonutsDB;create=true", DEFAULT_POOL_SIZE, new OrderArchive(Paths.get("data", "archive")));
+    }
+
+    // DATA DIRECTORY CONSTRUCTOR - the database in dataDir/OakDonutsDB, archiving under dataDir/archive
+    // (one store's database when several run side by side, see OrderShards)
+    public DatabaseManager(Path dataDir) {
+        this(urlFor(dataDir), DEFAULT_POOL_SIZE, new OrderArchive(dataDir.resolve("archive")));
+    }
+
+    // URL CONSTRUCTOR - connect to a specific database (used by tools and benchmarks)
+    public DatabaseManager(String url) {
+        this(url, DEFAULT_POOL_SIZE);
+    }
+
+    // POOL SIZE CONSTRUCTOR - connect with at most poolSize concurrent connections, without an order archive
+    public DatabaseManager(String url, int poolSize) {
+        this(url, poolSize, OrderArchive.none());
+    }
+
+    // ARCHIVE CONSTRUCTOR - orders moved to the archive by archiveOrders() keep showing up in history reads
+    public DatabaseManager(String url, int poolSize, OrderArchive archive) {
+        pool = new ConnectionPool(url, poolSize);
+        this.archive = archive;
+        createTables();
+        menuCatalog = new MenuCatalog(this::getMenuItems);
+        salesReports = new SalesReports(pool, menuCatalog, metrics);
+        orderPlacedEvents.subscribe(orders -> orders.forEach(recentOrders::add));
+    }
+
+    // URL FOR - embedded URL of the database kept in dataDir, created on first connect
+    public static String urlFor(Path dataDir) {
+        return "jdbc:derby:" + dataDir.resolve("OakDonutsDB") + ";create=true";
+    }
+
+    // GET MENU CATALOG - cached menu that the UI and order hydration read from
+    public MenuCatalog getMenuCatalog() {
+        return menuCatalog;
+    }
+
+    // IS REACHABLE - whether a connection can be borrowed and answers a trivial query; false is the expected
+    // answer while the database is down, so nothing is logged
+    public boolean isReachable() {
+        try (ConnectionPool.PooledConnection pc = pool.borrow();
+             ResultSet rs = pc.prepare("VALUES 1").executeQuery()) {
+            return rs.next();
         } catch (Exception e) {
-            e.printStackTrace();
+            return false;
         }
     }
 
-    // CREATE TABLES BLOCK - create database schema and populate initial data
+    // GET POOL SIZE - most calls that can be talking to Derby at once; more callers wait for a connection
+    public int getPoolSize() {
+        return pool.getMaxSize();
+    }
+
+    // GET METRICS - latency, call and error counts for every data-access method (db.*); the UI adds its actions (ui.*)
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    // GET ARCHIVE - where archiveOrders() moves old orders to
+    public OrderArchive getArchive() {
+        return archive;
+    }
+
+    // GET SALES REPORTS - hourly, per-item and per-category sales from the rollup tables
+    public SalesReports getSalesReports() {
+        return salesReports;
+    }
+
+    // ORDER PLACED EVENTS - published after each commit with the orders it added; the recent-orders buffer is
+    // filled first, so subscribers can read the new orders from it
+    public EventBus<List<NewOrder>> getOrderPlacedEvents() {
+        return orderPlacedEvents;
+    }
+
+    // CHANGES - published after each commit with what it added, updated or deleted on the menu or in the orders
+    // One mutation publishes one list, e.g. every item a menu import touched or every order a journal flush saved.
+    // Orders streamed in by importOrders and moved by archiveOrders are not published.
+    public EventBus<List<DataChange>> getChanges() {
+        return changes;
+    }
+
+    // RECENT ORDERS - the last orders committed by this process, newest with the highest sequence
+    public RingBuffer<NewOrder> getRecentOrders() {
+        return recentOrders;
+    }
+
+    // CREATE TABLES BLOCK - bring the schema up to date (see SchemaMigrations) and populate initial data
     private void createTables() {
-        try {
-            Statement stmt = conn.createStatement();
-            // MENU ITEMS TABLE
-            try {
-                stmt.execute("CREATE TABLE MENU_ITEMS (ID INT PRIMARY KEY GENERATED ALWAYS AS IDENTITY, NAME VARCHAR(100), DESCRIPTION VARCHAR(500), PRICE DOUBLE, CATEGORY VARCHAR(50))");
-            } catch (Exception e) {
-            }
-            // ORDERS TABLE
-            try {
-                stmt.execute("CREATE TABLE ORDERS (TRANSACTION_ID VARCHAR(50) PRIMARY KEY, ORDER_DATE VARCHAR(50), TOTAL_PRICE DOUBLE, STATUS VARCHAR(20))");
-            } catch (Exception e) {
-            }
-            // ORDER ITEMS TABLE
-            try {
-                stmt.execute("CREATE TABLE ORDER_ITEMS (ID INT PRIMARY KEY GENERATED ALWAYS AS IDENTITY, TRANSACTION_ID VARCHAR(50), MENU_ITEM_ID INT)");
-            } catch (Exception e) {
-            }
+        try (ConnectionPool.PooledConnection pc = pool.borrow()) {
+            SchemaMigrations.migrate(pc.connection());
 
             // INSERT INITIAL DATA BLOCK - populate sample menu items if database is empty
-            ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM MENU_ITEMS");
+            ResultSet rs = pc.prepare("SELECT COUNT(*) FROM MENU_ITEMS").executeQuery();
             rs.next();
             if (rs.getInt(1) == 0) {
-                stmt.execute("INSERT INTO MENU_ITEMS (NAME, DESCRIPTION, PRICE, CATEGORY) VALUES ('Classic Glazed', 'Traditional glazed donut', 2.50, 'glaze')");
-                stmt.execute("INSERT INTO MENU_ITEMS (NAME, DESCRIPTION, PRICE, CATEGORY) VALUES ('Chocolate Cake', 'Rich chocolate cake donut', 3.00, 'cake')");
-                stmt.execute("INSERT INTO MENU_ITEMS (NAME, DESCRIPTION, PRICE, CATEGORY) VALUES ('Vanilla Frosted', 'Vanilla frosted with sprinkles', 2.75, 'glaze')");
-                stmt.execute("INSERT INTO MENU_ITEMS (NAME, DESCRIPTION, PRICE, CATEGORY) VALUES ('Strawberry Jam', 'Filled with fresh strawberry jam', 3.25, 'specialty')");
-                stmt.execute("INSERT INTO MENU_ITEMS (NAME, DESCRIPTION, PRICE, CATEGORY) VALUES ('Boston Cream', 'Cream filled with chocolate top', 3.50, 'specialty')");
-                stmt.execute("INSERT INTO MENU_ITEMS (NAME, DESCRIPTION, PRICE, CATEGORY) VALUES ('Maple Glazed', 'Maple flavored donut', 2.75, 'glaze')");
-                stmt.execute("INSERT INTO MENU_ITEMS (NAME, DESCRIPTION, PRICE, CATEGORY) VALUES ('Chocolate Chip', 'Chocolate cake with chips', 3.25, 'cake')");
-                stmt.execute("INSERT INTO MENU_ITEMS (NAME, DESCRIPTION, PRICE, CATEGORY) VALUES ('Powdered Sugar', 'Classic powdered sugar donut', 2.50, 'glaze')");
+                PreparedStatement insert = pc.prepare("INSERT INTO MENU_ITEMS (NAME, DESCRIPTION, PRICE, CATEGORY) VALUES (?, ?, ?, ?)");
+                for (Object[] item : SEED_MENU) {
+                    insert.setString(1, (String) item[0]);
+                    insert.setString(2, (String) item[1]);
+                    insert.setDouble(3, (Double) item[2]);
+                    insert.setString(4, (String) item[3]);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
             }
-            stmt.close();
+            rs.close();
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
-    // GET MENU ITEMS - retrieve all menu items from database
+    // GET MENU ITEMS - retrieve all menu items from database (prefer getMenuCatalog() for reads)
     public List<MenuItem> getMenuItems() {
         List<MenuItem> items = new ArrayList<>();
-        try {
-            Statement stmt = conn.createStatement();
-            ResultSet rs = stmt.executeQuery("SELECT * FROM MENU_ITEMS");
+        OperationTimer.Timing timing = metrics.start("db.getMenuItems");
+        try (ConnectionPool.PooledConnection pc = pool.borrow();
+             ResultSet rs = pc.prepare("SELECT ID, NAME, DESCRIPTION, PRICE, CATEGORY FROM MENU_ITEMS").executeQuery()) {
             while (rs.next()) {
                 MenuItem item = new MenuItem(rs.getInt("ID"), rs.getString("NAME"), rs.getString("DESCRIPTION"), rs.getDouble("PRICE"), rs.getString("CATEGORY"));
                 items.add(item);
             }
-            stmt.close();
         } catch (Exception e) {
+            timing.fail();
             e.printStackTrace();
+        } finally {
+            timing.stop();
         }
         return items;
     }
 
     // ADD MENU ITEM - insert new item into database
     public void addMenuItem(String name, String desc, double price, String category) {
-        try {
-            Statement stmt = conn.createStatement();
-            stmt.execute("INSERT INTO MENU_ITEMS (NAME, DESCRIPTION, PRICE, CATEGORY) VALUES ('" + name + "', '" + desc + "', " + price + ", '" + category + "')");
-            stmt.close();
+        OperationTimer.Timing timing = metrics.start("db.addMenuItem");
+        try (ConnectionPool.PooledConnection pc = pool.borrow()) {
+            PreparedStatement stmt = pc.prepare("INSERT INTO MENU_ITEMS (NAME, DESCRIPTION, PRICE, CATEGORY) VALUES (?, ?, ?, ?)");
+            stmt.setString(1, name);
+            stmt.setString(2, desc);
+            stmt.setDouble(3, price);
+            stmt.setString(4, category);
+            stmt.executeUpdate();
         } catch (Exception e) {
+            timing.fail();
             e.printStackTrace();
+            return;
+        } finally {
+            timing.stop();
         }
+        reloadMenu();
     }
 
     // UPDATE MENU ITEM - modify existing menu item in database
     public void updateMenuItem(int id, String name, String desc, double price, String category) {
-        try {
-            Statement stmt = conn.createStatement();
-            stmt.execute("UPDATE MENU_ITEMS SET NAME='" + name + "', DESCRIPTION='" + desc + "', PRICE=" + price + ", CATEGORY='" + category + "' WHERE ID=" + id);
-            stmt.close();
+        OperationTimer.Timing timing = metrics.start("db.updateMenuItem");
+        try (ConnectionPool.PooledConnection pc = pool.borrow()) {
+            PreparedStatement stmt = pc.prepare("UPDATE MENU_ITEMS SET NAME=?, DESCRIPTION=?, PRICE=?, CATEGORY=? WHERE ID=?");
+            stmt.setString(1, name);
+            stmt.setString(2, desc);
+            stmt.setDouble(3, price);
+            stmt.setString(4, category);
+            stmt.setInt(5, id);
+            stmt.executeUpdate();
         } catch (Exception e) {
+            timing.fail();
             e.printStackTrace();
+            return;
+        } finally {
+            timing.stop();
         }
+        reloadMenu();
     }
 
     // DELETE MENU ITEM - remove item from database by ID
     public void deleteMenuItem(int id) {
-        try {
-            Statement stmt = conn.createStatement();
-            stmt.execute("DELETE FROM MENU_ITEMS WHERE ID=" + id);
-            stmt.close();
+        OperationTimer.Timing timing = metrics.start("db.deleteMenuItem");
+        try (ConnectionPool.PooledConnection pc = pool.borrow()) {
+            PreparedStatement stmt = pc.prepare("DELETE FROM MENU_ITEMS WHERE ID=?");
+            stmt.setInt(1, id);
+            stmt.executeUpdate();
         } catch (Exception e) {
+            timing.fail();
             e.printStackTrace();
+            return;
+        } finally {
+            timing.stop();
+        }
+        reloadMenu();
+    }
+
+    // IMPORT MENU ITEMS - stream menu items in, committing every batchSize items
+    // Items whose ID is already on the menu are updated in place, so the order history that refers to them stays
+    // valid; other IDs are inserted as given and an ID of 0 or less gets a generated one. Returns items written.
+    public int importMenuItems(Iterator<MenuItem> items, int batchSize) throws SQLException {
+        int written = 0;
+        OperationTimer.Timing timing = metrics.start("db.importMenuItems");
+        try (ConnectionPool.PooledConnection pc = pool.borrow()) {
+            Connection conn = pc.connection();
+            conn.setAutoCommit(false);
+            try {
+                PreparedStatement update = pc.prepare("UPDATE MENU_ITEMS SET NAME=?, DESCRIPTION=?, PRICE=?, CATEGORY=? WHERE ID=?");
+                PreparedStatement insertWithId = pc.prepare("INSERT INTO MENU_ITEMS (NAME, DESCRIPTION, PRICE, CATEGORY, ID) VALUES (?, ?, ?, ?, ?)");
+                PreparedStatement insert = pc.prepare("INSERT INTO MENU_ITEMS (NAME, DESCRIPTION, PRICE, CATEGORY) VALUES (?, ?, ?, ?)");
+                int pending = 0;
+                while (items.hasNext()) {
+                    MenuItem item = items.next();
+                    if (item.id <= 0) {
+                        setMenuColumns(insert, item);
+                        insert.executeUpdate();
+                    } else {
+                        setMenuColumns(update, item);
+                        update.setInt(5, item.id);
+                        if (update.executeUpdate() == 0) {
+                            setMenuColumns(insertWithId, item);
+                            insertWithId.setInt(5, item.id);
+                            insertWithId.executeUpdate();
+                        }
+                    }
+                    written++;
+                    if (++pending == batchSize) {
+                        conn.commit();
+                        pending = 0;
+                    }
+                }
+                // IDENTITY BLOCK - generated IDs must continue above the highest imported one
+                try (Statement stmt = conn.createStatement();
+                     ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(ID), 0) + 1 FROM MENU_ITEMS")) {
+                    rs.next();
+                    stmt.execute("ALTER TABLE MENU_ITEMS ALTER COLUMN ID RESTART WITH " + rs.getInt(1));
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException | RuntimeException e) {
+            timing.fail();
+            throw e;
+        } finally {
+            timing.stop();
+            reloadMenu();
+        }
+        return written;
+    }
+
+    // RELOAD MENU - swap in a new catalog snapshot and publish how it differs from the old one, item by item
+    // Held on the catalog's lock so concurrent reloads publish their differences in the order they were swapped in.
+    private void reloadMenu() {
+        synchronized (menuCatalog) {
+            MenuCatalog.Snapshot before = menuCatalog.snapshot();
+            menuCatalog.reload();
+            MenuCatalog.Snapshot after = menuCatalog.snapshot();
+            List<DataChange> changed = new ArrayList<>();
+            for (MenuItem item : after.items) {
+                MenuItem old = before.byId.get(item.id);
+                if (old == null) {
+                    changed.add(DataChange.itemAdded(item));
+                } else if (!Objects.equals(old.name, item.name) || !Objects.equals(old.description, item.description)
+                        || old.price != item.price || !Objects.equals(old.category, item.category)) {
+                    changed.add(DataChange.itemUpdated(item));
+                }
+            }
+            for (MenuItem old : before.items) {
+                if (!after.byId.containsKey(old.id)) changed.add(DataChange.itemDeleted(old));
+            }
+            if (!changed.isEmpty()) changes.publish(changed);
         }
     }
 
-    // GET ORDERS - retrieve all orders from database with items
+    private static void setMenuColumns(PreparedStatement stmt, MenuItem item) throws SQLException {
+        stmt.setString(1, item.name);
+        stmt.setString(2, item.description);
+        stmt.setDouble(3, item.price);
+        stmt.setString(4, item.category);
+    }
+
+    // GET ORDERS - retrieve all orders with their items in one ordered JOIN, followed by the archived ones
     public List<Order> getOrders() {
         List<Order> orders = new ArrayList<>();
-        try {
-            Statement stmt = conn.createStatement();
-            ResultSet rs = stmt.executeQuery("SELECT * FROM ORDERS ORDER BY ORDER_DATE DESC");
-            while (rs.next()) {
-                Order order = new Order();
-                order.transactionId = rs.getString("TRANSACTION_ID");
-                order.date = rs.getString("ORDER_DATE");
-                order.totalPrice = rs.getDouble("TOTAL_PRICE");
-                order.status = rs.getString("STATUS");
-                order.items = getOrderItems(order.transactionId);
+        OperationTimer.Timing timing = metrics.start("db.getOrders");
+        try (ConnectionPool.PooledConnection pc = pool.borrow();
+             ResultSet rs = pc.prepare(ORDER_SELECT + "ORDER BY o.ORDER_DATE DESC, o.TRANSACTION_ID DESC, oi.ID").executeQuery()) {
+            readOrders(rs, orders);
+            addArchived(orders, archive.getOrders(null, null));
+        } catch (Exception e) {
+            timing.fail();
+            e.printStackTrace();
+        } finally {
+            timing.stop();
+        }
+        return orders;
+    }
+
+    // GET ORDER - point lookup of a single order with its items, or null if it does not exist; the archive is only
+    // searched when the database does not have the order
+    public Order getOrder(String transactionId) {
+        List<Order> orders = new ArrayList<>();
+        OperationTimer.Timing timing = metrics.start("db.getOrder");
+        try (ConnectionPool.PooledConnection pc = pool.borrow()) {
+            PreparedStatement stmt = pc.prepare(ORDER_SELECT + "WHERE o.TRANSACTION_ID=? ORDER BY oi.ID" + CONSISTENT_READ);
+            stmt.setString(1, transactionId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                readOrders(rs, orders);
+            }
+            if (orders.isEmpty()) {
+                NewOrder archived = archive.getOrder(transactionId);
+                if (archived != null) orders.add(toOrder(archived, menuCatalog.snapshot()));
+            }
+        } catch (Exception e) {
+            timing.fail();
+            e.printStackTrace();
+        } finally {
+            timing.stop();
+        }
+        return orders.isEmpty() ? null : orders.get(0);
+    }
+
+    // READ ORDERS - rows arrive grouped by order, so start a new Order whenever the ID changes
+    private void readOrders(ResultSet rs, List<Order> orders) throws SQLException {
+        MenuCatalog.Snapshot menu = menuCatalog.snapshot();
+        Order order = null;
+        while (rs.next()) {
+            String transactionId = rs.getString(1);
+            if (order == null || !order.transactionId.equals(transactionId)) {
+                order = new Order();
+                order.transactionId = transactionId;
+                order.date = formatDate(rs.getTimestamp(2));
+                order.totalPrice = rs.getDouble(3);
+                order.status = rs.getString(4);
                 orders.add(order);
             }
-            stmt.close();
+            // LINE BLOCK - items as sold; lines for items since changed or removed from the menu are kept as they were
+            int menuItemId = rs.getInt(5);
+            if (rs.wasNull()) continue; // order with no lines
+            int quantity = rs.getInt(6);
+            double unitPrice = rs.getDouble(7);
+            Double price = rs.wasNull() ? null : unitPrice;
+            addItems(order.items, soldItem(menu, menuItemId, rs.getString(8), price), quantity);
+        }
+    }
+
+    // SOLD ITEM - a line's item under the name and price it was sold at; the catalog's own object when nothing
+    // changed since, so unchanged items are not copied for every order
+    private static MenuItem soldItem(MenuCatalog.Snapshot menu, int menuItemId, String name, Double unitPrice) {
+        MenuItem current = menu.byId.get(menuItemId);
+        String soldName = name != null ? name : current != null ? current.name : "Item #" + menuItemId;
+        double soldPrice = unitPrice != null ? unitPrice : current != null ? current.price : 0;
+        if (current != null && Objects.equals(current.name, soldName) && current.price == soldPrice) return current;
+        return new MenuItem(menuItemId, soldName, current != null ? current.description : "", soldPrice, current != null ? current.category : "");
+    }
+
+    // GET ORDERS BY STATUS - orders placed at or after since, in any of the given statuses, with their items,
+    // oldest first; IDX_ORDERS_STATUS (STATUS, ORDER_DATE) keeps this to the recent orders in those statuses
+    public List<Order> getOrdersByStatus(LocalDateTime since, String... statuses) {
+        List<Order> orders = new ArrayList<>();
+        if (statuses.length == 0) return orders;
+        String placeholders = "?" + ", ?".repeat(statuses.length - 1);
+        OperationTimer.Timing timing = metrics.start("db.getOrdersByStatus");
+        try (ConnectionPool.PooledConnection pc = pool.borrow()) {
+            PreparedStatement stmt = pc.prepare(ORDER_SELECT + "WHERE o.STATUS IN (" + placeholders + ") AND o.ORDER_DATE >= ? ORDER BY o.ORDER_DATE, o.TRANSACTION_ID, oi.ID");
+            for (int i = 0; i < statuses.length; i++) {
+                stmt.setString(i + 1, statuses[i]);
+            }
+            stmt.setTimestamp(statuses.length + 1, Timestamp.valueOf(since));
+            try (ResultSet rs = stmt.executeQuery()) {
+                readOrders(rs, orders);
+            }
         } catch (Exception e) {
+            timing.fail();
             e.printStackTrace();
+        } finally {
+            timing.stop();
         }
         return orders;
     }
 
-    // CREATE ORDER - save new order and items to database
-    public void createOrder(String transactionId, String date, double totalPrice, List<MenuItem> items) {
+    // GET ORDERS BETWEEN - orders dated in [from, to) with their items, newest first; null bounds are open
+    // The database range and the archive's months are read at the same time, each archived month on its own task.
+    public List<Order> getOrdersBetween(LocalDateTime from, LocalDateTime to) {
+        List<Order> orders = new ArrayList<>();
+        OperationTimer.Timing timing = metrics.start("db.getOrdersBetween");
         try {
-            Statement stmt = conn.createStatement();
-            stmt.execute("INSERT INTO ORDERS (TRANSACTION_ID, ORDER_DATE, TOTAL_PRICE, STATUS) VALUES ('" + transactionId + "', '" + date + "', " + totalPrice + ", 'pending')");
-            for (MenuItem item : items) {
-                stmt.execute("INSERT INTO ORDER_ITEMS (TRANSACTION_ID, MENU_ITEM_ID) VALUES ('" + transactionId + "', " + item.id + ")");
+            CompletableFuture<List<NewOrder>> archived = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return archive.getOrders(from, to);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            String where = "WHERE o.ORDER_DATE IS NOT NULL ";
+            if (from != null) where += "AND o.ORDER_DATE >= ? ";
+            if (to != null) where += "AND o.ORDER_DATE < ? ";
+            try (ConnectionPool.PooledConnection pc = pool.borrow()) {
+                PreparedStatement stmt = pc.prepare(ORDER_SELECT + where + "ORDER BY o.ORDER_DATE DESC, o.TRANSACTION_ID DESC, oi.ID");
+                int param = 1;
+                if (from != null) stmt.setTimestamp(param++, Timestamp.valueOf(from));
+                if (to != null) stmt.setTimestamp(param, Timestamp.valueOf(to));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    readOrders(rs, orders);
+                }
+            }
+            addArchived(orders, archived.join());
+        } catch (Exception e) {
+            timing.fail();
+            e.printStackTrace();
+        } finally {
+            timing.stop();
+        }
+        return orders;
+    }
+
+    // EXPORT ORDERS - hand every order with its lines, status and line prices to the sink: archived orders a month
+    // at a time, then the database's oldest ID first
+    // Reads one forward-only cursor and keeps only the current order in memory, so history of any size can be
+    // written out. Lines for items since removed from the menu are kept. Returns the order count, or -1 on error.
+    public int exportOrders(Consumer<NewOrder> sink) {
+        int[] count = {0};
+        OperationTimer.Timing timing = metrics.start("db.exportOrders");
+        try (ConnectionPool.PooledConnection pc = pool.borrow()) {
+            archive.forEachOrder(order -> {
+                sink.accept(order);
+                count[0]++;
+            });
+            PreparedStatement stmt = pc.prepare(ORDER_SELECT + "ORDER BY o.TRANSACTION_ID, oi.ID");
+            stmt.setFetchSize(EXPORT_FETCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                count[0] += readNewOrders(rs, sink);
             }
-            stmt.close();
         } catch (Exception e) {
+            timing.fail();
             e.printStackTrace();
+            return -1;
+        } finally {
+            timing.stop();
         }
+        return count[0];
     }
 
-    // UPDATE ORDER STATUS - change status of order in database
-    public void updateOrderStatus(String transactionId, String status) {
+    // READ NEW ORDERS - rows arrive grouped by order; each order goes to the sink once its last line is read
+    private int readNewOrders(ResultSet rs, Consumer<NewOrder> sink) throws SQLException {
+        int count = 0;
+        NewOrder order = null;
+        while (rs.next()) {
+            String transactionId = rs.getString(1);
+            if (order == null || !order.transactionId.equals(transactionId)) {
+                if (order != null) {
+                    sink.accept(order);
+                    count++;
+                }
+                order = new NewOrder(transactionId, formatDate(rs.getTimestamp(2)), rs.getDouble(3), new ArrayList<>(), rs.getString(4));
+            }
+            int menuItemId = rs.getInt(5);
+            if (rs.wasNull()) continue; // order with no lines
+            int quantity = rs.getInt(6);
+            double unitPrice = rs.getDouble(7);
+            Double price = rs.wasNull() ? null : unitPrice;
+            order.lines.add(new OrderLine(menuItemId, quantity, price, rs.getString(8)));
+        }
+        if (order != null) {
+            sink.accept(order);
+            count++;
+        }
+        return count;
+    }
+
+    // COUNT ORDERS - number of orders in history, archived ones included
+    public int countOrders() {
+        int count = 0;
+        OperationTimer.Timing timing = metrics.start("db.countOrders");
+        try (ConnectionPool.PooledConnection pc = pool.borrow();
+             ResultSet rs = pc.prepare("SELECT COUNT(*) FROM ORDERS").executeQuery()) {
+            rs.next();
+            count = rs.getInt(1) + archive.countOrders();
+        } catch (Exception e) {
+            timing.fail();
+            e.printStackTrace();
+        } finally {
+            timing.stop();
+        }
+        return count;
+    }
+
+    // GET ORDER SUMMARIES AFTER - keyset page of the history list, newest first, starting after the given (date, ID) key
+    public List<OrderSummary> getOrderSummariesAfter(String afterDate, String afterTransactionId, int limit) {
+        String sql = SUMMARY_SELECT;
+        if (afterDate != null) {
+            // the leading ORDER_DATE <= ? gives Derby a start key on IDX_ORDERS_DATE instead of scanning from the newest order
+            sql += "WHERE o.ORDER_DATE <= ? AND (o.ORDER_DATE < ? OR o.TRANSACTION_ID < ?) ";
+        }
+        sql += "ORDER BY o.ORDER_DATE DESC, o.TRANSACTION_ID DESC FETCH FIRST ? ROWS ONLY";
+        List<OrderSummary> summaries = new ArrayList<>();
+        OperationTimer.Timing timing = metrics.start("db.getOrderSummariesAfter");
+        try (ConnectionPool.PooledConnection pc = pool.borrow()) {
+            PreparedStatement stmt = pc.prepare(sql);
+            int param = 1;
+            if (afterDate != null) {
+                Timestamp after = Timestamp.valueOf(afterDate);
+                stmt.setTimestamp(param++, after);
+                stmt.setTimestamp(param++, after);
+                stmt.setString(param++, afterTransactionId);
+            }
+            stmt.setInt(param, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                readSummaries(rs, summaries);
+            }
+            // ARCHIVE BLOCK - archived orders are normally older than every order left in the database, so the archive
+            // is only read once a page runs past the database's oldest order, or when the two overlap in time
+            String newestArchived = archive.getNewestDate();
+            if (newestArchived != null && (summaries.size() < limit || summaries.get(summaries.size() - 1).date.compareTo(newestArchived) <= 0)) {
+                for (NewOrder order : archive.getOrdersBefore(afterDate, afterTransactionId, limit)) {
+                    summaries.add(toSummary(order));
+                }
+                summaries.sort(SUMMARY_NEWEST_FIRST);
+                if (summaries.size() > limit) summaries.subList(limit, summaries.size()).clear();
+            }
+        } catch (Exception e) {
+            timing.fail();
+            e.printStackTrace();
+        } finally {
+            timing.stop();
+        }
+        return summaries;
+    }
+
+    // GET ORDER SUMMARIES AT - offset page of the history list, used when jumping to a page with no known keyset anchor
+    public List<OrderSummary> getOrderSummariesAt(int offset, int limit) {
+        List<OrderSummary> summaries = new ArrayList<>();
+        OperationTimer.Timing timing = metrics.start("db.getOrderSummariesAt");
+        try (ConnectionPool.PooledConnection pc = pool.borrow()) {
+            PreparedStatement stmt = pc.prepare(SUMMARY_SELECT + "ORDER BY o.ORDER_DATE DESC, o.TRANSACTION_ID DESC OFFSET ? ROWS FETCH NEXT ? ROWS ONLY");
+            stmt.setInt(1, offset);
+            stmt.setInt(2, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                readSummaries(rs, summaries);
+            }
+            // ARCHIVE BLOCK - past the database's orders the page continues into the archive, newest month first
+            if (summaries.size() < limit && archive.countOrders() > 0) {
+                int stored;
+                try (ResultSet rs = pc.prepare("SELECT COUNT(*) FROM ORDERS").executeQuery()) {
+                    rs.next();
+                    stored = rs.getInt(1);
+                }
+                for (NewOrder order : archive.getOrdersAt(Math.max(0, offset - stored), limit - summaries.size())) {
+                    summaries.add(toSummary(order));
+                }
+            }
+        } catch (Exception e) {
+            timing.fail();
+            e.printStackTrace();
+        } finally {
+            timing.stop();
+        }
+        return summaries;
+    }
+
+    // READ SUMMARIES - map history list rows to OrderSummary objects
+    private void readSummaries(ResultSet rs, List<OrderSummary> summaries) throws SQLException {
+        while (rs.next()) {
+            summaries.add(new OrderSummary(rs.getString(1), formatDate(rs.getTimestamp(2)), rs.getInt(3), rs.getDouble(4), rs.getString(5)));
+        }
+    }
+
+    // CREATE ORDER - save new order from one-entry-per-donut cart contents
+    public boolean createOrder(String transactionId, String date, double totalPrice, List<MenuItem> items) {
+        return createOrder(transactionId, date, totalPrice, OrderLine.fromItems(items));
+    }
+
+    // CREATE ORDER FROM LINES - save order and its lines in a single transaction using batched inserts
+    public boolean createOrder(String transactionId, String date, double totalPrice, Collection<OrderLine> lines) {
+        List<NewOrder> order = List.of(new NewOrder(transactionId, date, totalPrice, new ArrayList<>(lines)));
+        OperationTimer.Timing timing = metrics.start("db.createOrder");
         try {
-            Statement stmt = conn.createStatement();
-            stmt.execute("UPDATE ORDERS SET STATUS='" + status + "' WHERE TRANSACTION_ID='" + transactionId + "'");
-            stmt.close();
+            inTransaction(pc -> {
+                SalesRollups.Delta rollups = new SalesRollups.Delta();
+                insertOrders(pc, order, rollups);
+                rollups.apply(pc::prepare);
+                return true;
+            });
         } catch (Exception e) {
+            timing.fail();
             e.printStackTrace();
+            return false;
+        } finally {
+            timing.stop();
         }
+        orderPlacedEvents.publish(order);
+        publishCreated(order);
+        return true;
     }
 
-    // DELETE ORDER - remove order and related items from database
-    public void deleteOrder(String transactionId) {
+    // CREATE ORDERS - save many orders in one transaction, skipping IDs that already exist (safe to repeat)
+    // Returns how many were inserted, or -1 if the transaction failed and nothing was saved.
+    public int createOrders(List<NewOrder> orders) {
+        List<NewOrder> inserted;
+        OperationTimer.Timing timing = metrics.start("db.createOrders");
         try {
-            Statement stmt = conn.createStatement();
-            stmt.execute("DELETE FROM ORDER_ITEMS WHERE TRANSACTION_ID='" + transactionId + "'");
-            stmt.execute("DELETE FROM ORDERS WHERE TRANSACTION_ID='" + transactionId + "'");
-            stmt.close();
+            inserted = insertMissingOrders(orders);
         } catch (Exception e) {
+            timing.fail();
             e.printStackTrace();
+            return -1;
+        } finally {
+            timing.stop();
+        }
+        if (!inserted.isEmpty()) {
+            orderPlacedEvents.publish(inserted);
+            publishCreated(inserted);
         }
+        return inserted.size();
     }
 
-    // GET ORDER ITEMS - retrieve all items for a specific order
-    private List<MenuItem> getOrderItems(String transactionId) {
-        List<MenuItem> items = new ArrayList<>();
+    // PUBLISH CREATED - history rows for orders just committed
+    private void publishCreated(List<NewOrder> orders) {
+        List<DataChange> created = new ArrayList<>(orders.size());
+        for (NewOrder order : orders) {
+            created.add(DataChange.orderCreated(toSummary(order)));
+        }
+        changes.publish(created);
+    }
+
+    // IMPORT ORDERS - stream order history in, committing every batchSize orders; IDs already present are skipped,
+    // so an interrupted import can simply be run again. Imported orders keep their status and line prices and
+    // count toward the sales rollups, but are not published as newly placed. Returns how many were inserted.
+    public int importOrders(Iterator<NewOrder> orders, int batchSize) throws SQLException {
+        int inserted = 0;
+        List<NewOrder> batch = new ArrayList<>(batchSize);
+        OperationTimer.Timing timing = metrics.start("db.importOrders");
         try {
-            Statement stmt = conn.createStatement();
-            ResultSet rs = stmt.executeQuery("SELECT m.* FROM MENU_ITEMS m JOIN ORDER_ITEMS oi ON m.ID=oi.MENU_ITEM_ID WHERE oi.TRANSACTION_ID='" + transactionId + "'");
-            while (rs.next()) {
-                MenuItem item = new MenuItem(rs.getInt("ID"), rs.getString("NAME"), rs.getString("DESCRIPTION"), rs.getDouble("PRICE"), rs.getString("CATEGORY"));
-                items.add(item);
+            while (orders.hasNext()) {
+                batch.add(orders.next());
+                if (batch.size() == batchSize || !orders.hasNext()) {
+                    inserted += insertMissingOrders(batch).size();
+                    batch.clear();
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            timing.fail();
+            throw e;
+        } finally {
+            timing.stop();
+        }
+        return inserted;
+    }
+
+    // INSERT MISSING ORDERS - one transaction inserting those orders whose IDs are not in the database or archive yet
+    private List<NewOrder> insertMissingOrders(List<NewOrder> orders) throws SQLException {
+        Set<String> archived;
+        try {
+            archived = archive.findArchived(orders);
+        } catch (IOException e) {
+            throw new SQLException("Could not read the order archive", e);
+        }
+        return inTransaction(pc -> {
+            List<NewOrder> missing = new ArrayList<>(orders.size());
+            PreparedStatement exists = pc.prepare("SELECT 1 FROM ORDERS WHERE TRANSACTION_ID=?");
+            for (NewOrder order : orders) {
+                if (archived.contains(order.transactionId)) continue;
+                exists.setString(1, order.transactionId);
+                try (ResultSet rs = exists.executeQuery()) {
+                    if (!rs.next()) missing.add(order);
+                }
+            }
+            // rollup changes for the whole batch are summed first, so each hour's rows are written once
+            SalesRollups.Delta rollups = new SalesRollups.Delta();
+            insertOrders(pc, missing, rollups);
+            rollups.apply(pc::prepare);
+            return missing;
+        });
+    }
+
+    // IN TRANSACTION - run work in one transaction, rolling back on any error so no half-written order is left behind
+    // Lock timeouts and deadlocks (SQLState class 40) roll the whole transaction back, so the work is simply run again.
+    private <T> T inTransaction(TransactionWork<T> work) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try (ConnectionPool.PooledConnection pc = pool.borrow()) {
+                Connection conn = pc.connection();
+                conn.setAutoCommit(false);
+                try {
+                    T result = work.run(pc);
+                    conn.commit();
+                    return result;
+                } catch (SQLException | RuntimeException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                String state = e.getSQLState();
+                if (attempt >= MAX_TRANSACTION_ATTEMPTS || state == null || !state.startsWith("40")) throw e;
+                metrics.increment("db.transactionRetries");
             }
-            stmt.close();
+        }
+    }
+
+    private interface TransactionWork<T> {
+        T run(ConnectionPool.PooledConnection pc) throws SQLException;
+    }
+
+    // INSERT ORDERS - order rows and then line rows as two batches, inside the caller's transaction
+    // Each line records the price and item name it was sold under (the current menu's unless the line carries them);
+    // every order not cancelled adds its share of the sales rollups to the delta.
+    private void insertOrders(ConnectionPool.PooledConnection pc, List<NewOrder> orders, SalesRollups.Delta rollups) throws SQLException {
+        if (orders.isEmpty()) return;
+        PreparedStatement insertOrder = pc.prepare("INSERT INTO ORDERS (TRANSACTION_ID, ORDER_DATE, TOTAL_PRICE, STATUS) VALUES (?, ?, ?, ?)");
+        PreparedStatement insertLine = pc.prepare("INSERT INTO ORDER_ITEMS (TRANSACTION_ID, MENU_ITEM_ID, QUANTITY, UNIT_PRICE, ITEM_NAME) VALUES (?, ?, ?, ?, ?)");
+        MenuCatalog.Snapshot menu = menuCatalog.snapshot();
+        for (NewOrder order : orders) {
+            Timestamp orderDate = Timestamp.valueOf(order.date);
+            boolean counts = SalesRollups.counts(order.status);
+            insertOrder.setString(1, order.transactionId);
+            insertOrder.setTimestamp(2, orderDate);
+            insertOrder.setDouble(3, order.totalPrice);
+            insertOrder.setString(4, order.status);
+            insertOrder.addBatch();
+            if (counts) rollups.addOrder(orderDate, order.totalPrice, 1);
+            for (OrderLine line : order.lines) {
+                MenuItem item = menu.byId.get(line.menuItemId);
+                Double unitPrice = line.unitPrice;
+                if (unitPrice == null && item != null) unitPrice = item.price;
+                String name = line.name;
+                if (name == null && item != null) name = item.name;
+                insertLine.setString(1, order.transactionId);
+                insertLine.setInt(2, line.menuItemId);
+                insertLine.setInt(3, line.quantity);
+                if (unitPrice != null) {
+                    insertLine.setDouble(4, unitPrice);
+                } else {
+                    insertLine.setNull(4, Types.DOUBLE);
+                }
+                insertLine.setString(5, name);
+                insertLine.addBatch();
+                if (counts) rollups.addLine(orderDate, line.menuItemId, line.quantity, unitPrice, 1);
+            }
+        }
+        // orders first: the lines' foreign key needs them
+        insertOrder.executeBatch();
+        insertLine.executeBatch();
+    }
+
+    // UPDATE ORDER STATUS - change status of order in database; returns false if no such order exists there
+    // (archived orders keep the status they were archived with)
+    // Moving an order into or out of "cancelled" takes it out of or puts it back into the sales rollups.
+    public boolean updateOrderStatus(String transactionId, String status) {
+        boolean updated = false;
+        OperationTimer.Timing timing = metrics.start("db.updateOrderStatus");
+        try {
+            updated = inTransaction(pc -> {
+                SalesRollups.Delta rollups = new SalesRollups.Delta();
+                boolean changed = changeStatus(pc, transactionId, status, rollups);
+                rollups.apply(pc::prepare);
+                return changed;
+            });
         } catch (Exception e) {
+            timing.fail();
             e.printStackTrace();
+        } finally {
+            timing.stop();
         }
-        return items;
+        fireOrderChanged(transactionId);
+        if (updated) changes.publish(List.of(DataChange.orderStatusChanged(transactionId, status)));
+        return updated;
     }
 
-    // CLOSE CONNECTION - disconnect from database
-    public void close() {
+    // UPDATE ORDER STATUSES - apply many (transaction ID -> status) changes in one transaction
+    // Rows are locked in ID order so concurrent batches cannot deadlock each other. Returns how many orders
+    // existed and were updated, or -1 if the transaction failed and nothing was changed.
+    public int updateOrderStatuses(Map<String, String> statuses) {
+        Map<String, String> ordered = new TreeMap<>(statuses);
+        List<DataChange> updated;
+        OperationTimer.Timing timing = metrics.start("db.updateOrderStatuses");
         try {
-            if (conn != null) conn.close();
+            updated = inTransaction(pc -> {
+                SalesRollups.Delta rollups = new SalesRollups.Delta();
+                List<DataChange> changed = new ArrayList<>();
+                for (Map.Entry<String, String> entry : ordered.entrySet()) {
+                    if (changeStatus(pc, entry.getKey(), entry.getValue(), rollups)) {
+                        changed.add(DataChange.orderStatusChanged(entry.getKey(), entry.getValue()));
+                    }
+                }
+                rollups.apply(pc::prepare);
+                return changed;
+            });
         } catch (Exception e) {
+            timing.fail();
             e.printStackTrace();
+            return -1;
+        } finally {
+            timing.stop();
+        }
+        for (String transactionId : ordered.keySet()) {
+            fireOrderChanged(transactionId);
         }
+        if (!updated.isEmpty()) changes.publish(updated);
+        return updated.size();
+    }
+
+    // CHANGE STATUS - lock the order row and set its status; false if no such order exists
+    // Moving the order into or out of "cancelled" adds its share of the sales rollups to the delta.
+    private boolean changeStatus(ConnectionPool.PooledConnection pc, String transactionId, String status, SalesRollups.Delta rollups) throws SQLException {
+        PreparedStatement select = pc.prepare("SELECT ORDER_DATE, TOTAL_PRICE, STATUS FROM ORDERS WHERE TRANSACTION_ID=? FOR UPDATE");
+        select.setString(1, transactionId);
+        Timestamp orderDate;
+        double totalPrice;
+        boolean counted;
+        try (ResultSet rs = select.executeQuery()) {
+            if (!rs.next()) return false;
+            orderDate = rs.getTimestamp(1);
+            totalPrice = rs.getDouble(2);
+            counted = SalesRollups.counts(rs.getString(3));
+        }
+        PreparedStatement stmt = pc.prepare("UPDATE ORDERS SET STATUS=? WHERE TRANSACTION_ID=?");
+        stmt.setString(1, status);
+        stmt.setString(2, transactionId);
+        stmt.executeUpdate();
+        if (counted != SalesRollups.counts(status)) {
+            rollups.addStoredOrder(pc::prepare, transactionId, orderDate, totalPrice, counted ? -1 : 1);
+        }
+        return true;
+    }
+
+    // DELETE ORDER - remove order and related items from database in one transaction, or from the archive
+    public void deleteOrder(String transactionId) {
+        int removed = 0;
+        AtomicReference<NewOrder> archived = new AtomicReference<>();
+        OperationTimer.Timing timing = metrics.start("db.deleteOrder");
+        try {
+            removed = inTransaction(pc -> {
+                archived.set(null);
+                // ROLLUP BLOCK - take the order back out of the sales rollups unless it was cancelled already
+                PreparedStatement select = pc.prepare("SELECT ORDER_DATE, TOTAL_PRICE, STATUS FROM ORDERS WHERE TRANSACTION_ID=? FOR UPDATE");
+                select.setString(1, transactionId);
+                SalesRollups.Delta rollups = new SalesRollups.Delta();
+                try (ResultSet rs = select.executeQuery()) {
+                    if (rs.next() && SalesRollups.counts(rs.getString(3))) {
+                        rollups.addStoredOrder(pc::prepare, transactionId, rs.getTimestamp(1), rs.getDouble(2), -1);
+                    }
+                }
+                PreparedStatement deleteLines = pc.prepare("DELETE FROM ORDER_ITEMS WHERE TRANSACTION_ID=?");
+                deleteLines.setString(1, transactionId);
+                deleteLines.executeUpdate();
+                PreparedStatement deleteOrder = pc.prepare("DELETE FROM ORDERS WHERE TRANSACTION_ID=?");
+                deleteOrder.setString(1, transactionId);
+                int deleted = deleteOrder.executeUpdate();
+                if (deleted == 0) {
+                    archived.set(removeArchivedFromRollups(pc, transactionId));
+                    return archived.get() != null ? 1 : 0;
+                }
+                rollups.apply(pc::prepare);
+                return deleted;
+            });
+            // ARCHIVE BLOCK - the archive is rewritten only once the rollups have committed, so a failed or retried
+            // transaction cannot lose the order from it. If the rewrite fails, or a concurrent delete removed the
+            // order first, the rollups are put back.
+            if (archived.get() != null) {
+                NewOrder taken = null;
+                try {
+                    taken = archive.remove(transactionId);
+                } finally {
+                    if (taken == null) {
+                        removed = 0;
+                        inTransaction(pc -> {
+                            archivedRollups(archived.get(), 1).apply(pc::prepare);
+                            return null;
+                        });
+                    }
+                }
+            }
+        } catch (Exception e) {
+            timing.fail();
+            e.printStackTrace();
+        } finally {
+            timing.stop();
+        }
+        fireOrderChanged(transactionId);
+        if (removed > 0) changes.publish(List.of(DataChange.orderDeleted(transactionId)));
+    }
+
+    // REMOVE ARCHIVED FROM ROLLUPS - take an archived order out of the sales rollups inside the caller's transaction
+    // and return it, or null if the order is not archived either. deleteOrder removes it from the archive after commit.
+    private NewOrder removeArchivedFromRollups(ConnectionPool.PooledConnection pc, String transactionId) throws SQLException {
+        NewOrder order;
+        try {
+            order = archive.getOrder(transactionId);
+        } catch (IOException e) {
+            throw new SQLException("Could not read the order archive", e);
+        }
+        if (order != null) archivedRollups(order, -1).apply(pc::prepare);
+        return order;
+    }
+
+    // ARCHIVED ROLLUPS - an archived order's share of the sales rollups, added (sign 1) or taken out (-1)
+    private static SalesRollups.Delta archivedRollups(NewOrder order, int sign) {
+        SalesRollups.Delta rollups = new SalesRollups.Delta();
+        if (order != null && SalesRollups.counts(order.status)) {
+            Timestamp orderDate = Timestamp.valueOf(order.date);
+            rollups.addOrder(orderDate, order.totalPrice, sign);
+            for (OrderLine line : order.lines) {
+                rollups.addLine(orderDate, line.menuItemId, line.quantity, line.unitPrice, sign);
+            }
+        }
+        return rollups;
+    }
+
+    // ARCHIVE ORDERS - move orders dated before the cutoff out of the database into the archive, a month at a time
+    // Each month is read, written to its segment, and only then deleted here by ID, so a crash in between leaves an
+    // order in both places (reads prefer the database copy; the next run replaces the archived one) rather than in
+    // neither. The sales rollups are left alone, so reports keep counting archived orders. Archived orders can still
+    // be read and deleted, but no longer change status. Returns how many orders were moved, or -1 on error.
+    public int archiveOrders(LocalDateTime cutoff) {
+        int moved = 0;
+        OperationTimer.Timing timing = metrics.start("db.archiveOrders");
+        try {
+            if (!archive.isEnabled()) throw new IllegalStateException("No order archive configured");
+            Timestamp end = Timestamp.valueOf(cutoff);
+            Timestamp monthStart = oldestOrderDate(null, end);
+            while (monthStart != null) {
+                LocalDateTime start = monthStart.toLocalDateTime().withDayOfMonth(1).toLocalDate().atStartOfDay();
+                Timestamp monthEnd = Timestamp.valueOf(start.plusMonths(1).isBefore(cutoff) ? start.plusMonths(1) : cutoff);
+                List<NewOrder> orders = new ArrayList<>();
+                try (ConnectionPool.PooledConnection pc = pool.borrow()) {
+                    PreparedStatement stmt = pc.prepare(ORDER_SELECT + "WHERE o.ORDER_DATE >= ? AND o.ORDER_DATE < ? ORDER BY o.TRANSACTION_ID, oi.ID");
+                    stmt.setTimestamp(1, Timestamp.valueOf(start));
+                    stmt.setTimestamp(2, monthEnd);
+                    stmt.setFetchSize(EXPORT_FETCH_SIZE);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        readNewOrders(rs, orders::add);
+                    }
+                }
+                archive.add(orders);
+                for (int i = 0; i < orders.size(); i += ARCHIVE_DELETE_BATCH) {
+                    deleteArchivedRows(orders.subList(i, Math.min(orders.size(), i + ARCHIVE_DELETE_BATCH)));
+                }
+                moved += orders.size();
+                monthStart = oldestOrderDate(monthEnd, end);
+            }
+        } catch (Exception e) {
+            timing.fail();
+            e.printStackTrace();
+            return -1;
+        } finally {
+            timing.stop();
+        }
+        return moved;
+    }
+
+    // OLDEST ORDER DATE - earliest ORDER_DATE in [from, to), or null if there is none; a null from is open
+    private Timestamp oldestOrderDate(Timestamp from, Timestamp to) throws SQLException {
+        try (ConnectionPool.PooledConnection pc = pool.borrow()) {
+            PreparedStatement stmt = pc.prepare("SELECT MIN(ORDER_DATE) FROM ORDERS WHERE ORDER_DATE < ?" + (from != null ? " AND ORDER_DATE >= ?" : ""));
+            stmt.setTimestamp(1, to);
+            if (from != null) stmt.setTimestamp(2, from);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getTimestamp(1);
+            }
+        }
+    }
+
+    // DELETE ARCHIVED ROWS - one transaction deleting already-archived orders, lines first for the foreign key
+    private void deleteArchivedRows(List<NewOrder> orders) throws SQLException {
+        inTransaction(pc -> {
+            PreparedStatement deleteLines = pc.prepare("DELETE FROM ORDER_ITEMS WHERE TRANSACTION_ID=?");
+            PreparedStatement deleteOrder = pc.prepare("DELETE FROM ORDERS WHERE TRANSACTION_ID=?");
+            for (NewOrder order : orders) {
+                deleteLines.setString(1, order.transactionId);
+                deleteLines.addBatch();
+                deleteOrder.setString(1, order.transactionId);
+                deleteOrder.addBatch();
+            }
+            deleteLines.executeBatch();
+            deleteOrder.executeBatch();
+            return null;
+        });
+    }
+
+    // ORDER CHANGE LISTENERS - notified with the transaction ID after an order's status changes or it is deleted
+    public void addOrderChangeListener(Consumer<String> listener) {
+        orderChangeListeners.add(listener);
+    }
+
+    private void fireOrderChanged(String transactionId) {
+        for (Consumer<String> listener : orderChangeListeners) {
+            listener.accept(transactionId);
+        }
+    }
+
+    // FORMAT DATE - ORDER_DATE as the "yyyy-MM-dd HH:mm:ss" text the models carry
+    private static String formatDate(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime().format(DATE_FORMAT);
+    }
+
+    // ARCHIVED ORDER HELPERS BLOCK - archived orders carry (menu item, quantity) lines like orders being placed
+    private void addArchived(List<Order> orders, List<NewOrder> archived) {
+        if (archived.isEmpty()) return;
+        MenuCatalog.Snapshot menu = menuCatalog.snapshot();
+        for (NewOrder order : archived) {
+            orders.add(toOrder(order, menu));
+        }
+        orders.sort(NEWEST_FIRST);
+    }
+
+    private Order toOrder(NewOrder archived, MenuCatalog.Snapshot menu) {
+        Order order = new Order();
+        order.transactionId = archived.transactionId;
+        order.date = archived.date;
+        order.totalPrice = archived.totalPrice;
+        order.status = archived.status;
+        for (OrderLine line : archived.lines) {
+            addItems(order.items, soldItem(menu, line.menuItemId, line.name, line.unitPrice), line.quantity);
+        }
+        return order;
+    }
+
+    private static OrderSummary toSummary(NewOrder archived) {
+        int itemCount = 0;
+        for (OrderLine line : archived.lines) {
+            itemCount += line.quantity;
+        }
+        return new OrderSummary(archived.transactionId, archived.date, itemCount, archived.totalPrice, archived.status);
+    }
+
+    // ADD ITEMS - expand a (menu item, quantity) line back into one list entry per donut
+    private void addItems(List<MenuItem> items, MenuItem item, int quantity) {
+        for (int i = 0; i < quantity; i++) {
+            items.add(item);
+        }
+    }
+
+    // CLOSE CONNECTION - disconnect from database
+    public void close() {
+        pool.close();
+    }
+
+    // SHUT DOWN - disconnect and stop the embedded database as well, for databases opened and dropped while the
+    // process runs (see OrderShards)
+    public void shutDown() {
+        pool.shutDownDatabase();
     }
 }
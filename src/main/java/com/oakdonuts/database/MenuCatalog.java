@@ -0,0 +1,103 @@
+package com.oakdonuts.database;
+
+import com.oakdonuts.models.MenuItem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+// MenuCatalog - in-memory, read-mostly view of MENU_ITEMS; readers see an immutable snapshot that writers swap atomically
+public class MenuCatalog {
+    private final Supplier<List<MenuItem>> loader;
+    private final MenuSearchIndex searchIndex = new MenuSearchIndex();
+    private volatile Snapshot snapshot;
+
+    // CONSTRUCTOR - load the first snapshot from the given source (normally DatabaseManager.getMenuItems)
+    public MenuCatalog(Supplier<List<MenuItem>> loader) {
+        this.loader = loader;
+        List<MenuItem> items = loader.get();
+        searchIndex.update(items);
+        this.snapshot = new Snapshot(1, items);
+    }
+
+    // RELOAD - re-read the menu and publish it as the next version; readers keep using the old snapshot until the swap
+    // The search index is updated first, for the items that changed only.
+    public synchronized void reload() {
+        List<MenuItem> items = loader.get();
+        searchIndex.update(items);
+        snapshot = new Snapshot(snapshot.version + 1, items);
+    }
+
+    // SNAPSHOT - current immutable view; hold on to it to read several values consistently
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    public long getVersion() {
+        return snapshot.version;
+    }
+
+    public List<MenuItem> getItems() {
+        return snapshot.items;
+    }
+
+    public MenuItem getItem(int id) {
+        return snapshot.byId.get(id);
+    }
+
+    public List<MenuItem> getItemsInCategory(String category) {
+        return snapshot.byCategory.getOrDefault(category, Collections.emptyList());
+    }
+
+    public List<String> getCategories() {
+        return new ArrayList<>(snapshot.byCategory.keySet());
+    }
+
+    // SEARCH - items matching every word of the query as a word prefix, in menu order; a blank query matches
+    // everything and a null category means all categories. Served from memory, never from the database.
+    public List<MenuItem> search(String query, String category) {
+        Snapshot current = snapshot;
+        Set<Integer> matches = searchIndex.search(query);
+        List<MenuItem> candidates = category == null ? current.items : current.byCategory.getOrDefault(category, Collections.emptyList());
+        if (matches == null) return candidates;
+        List<MenuItem> result = new ArrayList<>();
+        for (MenuItem item : candidates) {
+            if (matches.contains(item.id)) result.add(item);
+        }
+        return result;
+    }
+
+    // MATCHES - whether one item passes the same query and category as search(), without building the result list
+    public boolean matches(MenuItem item, String query, String category) {
+        if (category != null && !category.equals(item.category)) return false;
+        Set<Integer> matches = searchIndex.search(query);
+        return matches == null || matches.contains(item.id);
+    }
+
+    // Snapshot - one version of the menu, indexed by ID and by category
+    public static class Snapshot {
+        public final long version;
+        public final List<MenuItem> items;
+        public final Map<Integer, MenuItem> byId;
+        public final Map<String, List<MenuItem>> byCategory;
+
+        // CONSTRUCTOR - build the indexes; nothing here is modified after construction
+        Snapshot(long version, List<MenuItem> items) {
+            Map<Integer, MenuItem> ids = new LinkedHashMap<>();
+            Map<String, List<MenuItem>> categories = new LinkedHashMap<>();
+            for (MenuItem item : items) {
+                ids.put(item.id, item);
+                categories.computeIfAbsent(item.category, c -> new ArrayList<>()).add(item);
+            }
+            categories.replaceAll((category, list) -> Collections.unmodifiableList(list));
+            this.version = version;
+            this.items = Collections.unmodifiableList(new ArrayList<>(items));
+            this.byId = Collections.unmodifiableMap(ids);
+            this.byCategory = Collections.unmodifiableMap(categories);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.oakdonuts.database;
+
+import com.oakdonuts.models.MenuItem;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+// MenuSearchIndex - token index over menu item name, description and category, for search-as-you-type
+// Text is split into lower-case words; a query matches an item when every query word is a prefix of one of the
+// item's words ("choc gla" finds "Chocolate Glazed"). Words live in a sorted map, so a prefix is a range lookup.
+// Kept up to date one item at a time as the menu changes; MenuCatalog does the writing, any thread may search.
+class MenuSearchIndex {
+    private final TreeMap<String, Set<Integer>> postings = new TreeMap<>();
+    private final Map<Integer, IndexedText> indexed = new HashMap<>();
+
+    // UPDATE - bring the index in line with a new menu; only items added, removed or with changed text are touched
+    // Returns how many items were re-indexed.
+    synchronized int update(List<MenuItem> items) {
+        int changed = 0;
+        Set<Integer> present = new HashSet<>();
+        for (MenuItem item : items) {
+            present.add(item.id);
+            IndexedText text = new IndexedText(item);
+            IndexedText old = indexed.get(item.id);
+            if (text.equals(old)) continue;
+            if (old != null) removeWords(item.id, old);
+            addWords(item.id, text);
+            indexed.put(item.id, text);
+            changed++;
+        }
+        for (Integer id : new ArrayList<>(indexed.keySet())) {
+            if (present.contains(id)) continue;
+            removeWords(id, indexed.remove(id));
+            changed++;
+        }
+        return changed;
+    }
+
+    // SEARCH - IDs of items matching every word of the query; null for a blank query (everything matches)
+    synchronized Set<Integer> search(String query) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty()) return null;
+        Set<Integer> result = null;
+        for (String word : words) {
+            Set<Integer> matches = new HashSet<>();
+            SortedMap<String, Set<Integer>> range = postings.subMap(word, word + Character.MAX_VALUE);
+            for (Set<Integer> ids : range.values()) {
+                matches.addAll(ids);
+            }
+            if (result == null) {
+                result = matches;
+            } else {
+                result.retainAll(matches);
+            }
+            if (result.isEmpty()) break;
+        }
+        return result;
+    }
+
+    // INDEX HELPERS BLOCK
+    private void addWords(int id, IndexedText text) {
+        for (String word : text.words) {
+            postings.computeIfAbsent(word, w -> new HashSet<>()).add(id);
+        }
+    }
+
+    private void removeWords(int id, IndexedText text) {
+        for (String word : text.words) {
+            Set<Integer> ids = postings.get(word);
+            if (ids == null) continue;
+            ids.remove(id);
+            if (ids.isEmpty()) postings.remove(word);
+        }
+    }
+
+    // TOKENIZE - lower-case runs of letters and digits
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) return words;
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) words.add(word);
+        }
+        return words;
+    }
+
+    // IndexedText - the searchable fields of an item as last indexed, to tell whether an update changed them
+    private static class IndexedText {
+        final String name;
+        final String description;
+        final String category;
+        final Set<String> words = new HashSet<>();
+
+        IndexedText(MenuItem item) {
+            this.name = item.name;
+            this.description = item.description;
+            this.category = item.category;
+            words.addAll(tokenize(name));
+            words.addAll(tokenize(description));
+            words.addAll(tokenize(category));
+        }
+
+        public boolean equals(Object other) {
+            if (!(other instanceof IndexedText)) return false;
+            IndexedText text = (IndexedText) other;
+            return Objects.equals(name, text.name) && Objects.equals(description, text.description) && Objects.equals(category, text.category);
+        }
+
+        public int hashCode() {
+            return Objects.hash(name, description, category);
+        }
+    }
+}
@@ -0,0 +1,554 @@
+package com.oakdonuts.database;
+
+import com.oakdonuts.archive.OrderArchive;
+import com.oakdonuts.metrics.MetricsRegistry;
+import com.oakdonuts.metrics.OperationTimer;
+import com.oakdonuts.models.CategorySales;
+import com.oakdonuts.models.HourlySales;
+import com.oakdonuts.models.ItemSales;
+import com.oakdonuts.models.MenuItem;
+import com.oakdonuts.models.NewOrder;
+import com.oakdonuts.models.Order;
+import com.oakdonuts.models.OrderSummary;
+import com.oakdonuts.util.TransactionIds;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+// OrderShards - routes orders to one embedded database per store, or per store and day, and fans reads out over them
+// Layout under the root directory: <store>/OakDonutsDB, or <store>/<yyyy-MM-dd>/OakDonutsDB when partitioned by day,
+// each with its own archive/ next to it - the same layout a store's own app uses (see DatabaseManager(Path)).
+// Shards already on disk are found at construction and opened on first use. A shard created here starts with a copy
+// of the home database's menu, so a menu item ID means the same item in every shard. At most oak.openShards
+// (default 16) shards stay open: past that, the least recently used idle ones are shut down until needed again.
+// Cross-shard reads run one task per shard on a fork-join pool and merge the results pairwise as the tasks finish:
+// history is merged newest first, counts and sales totals are summed. Reads with a date window only open the day
+// shards inside it, and history pages walk a store's days newest first, stopping once the page is full.
+// Transaction IDs are expected to be unique across stores, as they are across terminals. Status updates, deletes
+// and lookups by ID only ask the days around the time a TransactionIds ID was made; older IDs ask every shard.
+public class OrderShards implements AutoCloseable {
+    private static final int SHARD_POOL_SIZE = 4;
+    private static final int MAX_OPEN_SHARDS = Integer.getInteger("oak.openShards", 16);
+    private static final int DEFAULT_PARALLELISM = 8;
+    private static final int MENU_BATCH = 500;
+    private static final String DATABASE_NAME = "OakDonutsDB";
+    private static final Pattern STORE_NAME = Pattern.compile("[A-Za-z0-9_-]+");
+
+    private final Path root;
+    private final DatabaseManager home;
+    private final boolean perDay;
+    private final MetricsRegistry metrics;
+    private final ForkJoinPool fanOutPool;
+    private final Map<String, Shard> shards = new ConcurrentHashMap<>();
+    private final AtomicInteger openShards = new AtomicInteger();
+
+    // CONSTRUCTOR - shards under root, one per store or (perDay) one per store and day; home supplies the menu
+    public OrderShards(Path root, DatabaseManager home, boolean perDay) throws IOException {
+        this(root, home, perDay, DEFAULT_PARALLELISM);
+    }
+
+    // PARALLELISM CONSTRUCTOR - at most parallelism shards are queried at the same time
+    public OrderShards(Path root, DatabaseManager home, boolean perDay, int parallelism) throws IOException {
+        this.root = root;
+        this.home = home;
+        this.perDay = perDay;
+        this.metrics = home.getMetrics();
+        this.fanOutPool = new ForkJoinPool(parallelism);
+        Files.createDirectories(root);
+        discover();
+    }
+
+    // STORE DIRECTORY - where a store's database lives when it is not partitioned by day
+    public static Path storeDirectory(Path root, String store) {
+        return root.resolve(checkStore(store));
+    }
+
+    // GET STORES - every store with at least one shard, by name
+    public List<String> getStores() {
+        Set<String> stores = new HashSet<>();
+        for (Shard shard : shards.values()) {
+            stores.add(shard.store);
+        }
+        List<String> sorted = new ArrayList<>(stores);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    // CREATE ORDER - save a new order in the shard for its store and day
+    public boolean createOrder(String store, String transactionId, String date, double totalPrice, List<MenuItem> items) {
+        return withShard(shardFor(store, dayOf(date)), db -> db.createOrder(transactionId, date, totalPrice, items));
+    }
+
+    // CREATE ORDERS - save a store's orders, one transaction per day shard they fall in; IDs already saved are skipped
+    // Returns how many were inserted, or -1 if any shard's transaction failed (the others are kept; safe to repeat).
+    public int createOrders(String store, List<NewOrder> orders) {
+        int inserted = 0;
+        boolean failed = false;
+        for (Map.Entry<Shard, List<NewOrder>> group : groupByShard(store, orders).entrySet()) {
+            int count = withShard(group.getKey(), db -> db.createOrders(group.getValue()));
+            if (count < 0) {
+                failed = true;
+            } else {
+                inserted += count;
+            }
+        }
+        return failed ? -1 : inserted;
+    }
+
+    // IMPORT ORDERS - stream a store's history in, batchSize orders at a time, each batch split across its day shards
+    public int importOrders(String store, Iterator<NewOrder> orders, int batchSize) throws SQLException {
+        int inserted = 0;
+        List<NewOrder> batch = new ArrayList<>(batchSize);
+        while (orders.hasNext()) {
+            batch.add(orders.next());
+            if (batch.size() == batchSize || !orders.hasNext()) {
+                for (Map.Entry<Shard, List<NewOrder>> group : groupByShard(store, batch).entrySet()) {
+                    DatabaseManager db = acquire(group.getKey());
+                    try {
+                        inserted += db.importOrders(group.getValue().iterator(), batchSize);
+                    } finally {
+                        release(group.getKey());
+                    }
+                }
+                batch.clear();
+            }
+        }
+        return inserted;
+    }
+
+    // UPDATE ORDER STATUS - change the status of an order in whichever shard holds it; false if none does
+    public boolean updateOrderStatus(String transactionId, String status) {
+        OperationTimer.Timing timing = metrics.start("shards.updateOrderStatus");
+        try {
+            return fanOut(shardsForOrder(transactionId), db -> db.updateOrderStatus(transactionId, status), Boolean::logicalOr, false);
+        } finally {
+            timing.stop();
+        }
+    }
+
+    // DELETE ORDER - remove an order from whichever shard holds it
+    public void deleteOrder(String transactionId) {
+        OperationTimer.Timing timing = metrics.start("shards.deleteOrder");
+        try {
+            fanOut(shardsForOrder(transactionId), db -> {
+                db.deleteOrder(transactionId);
+                return null;
+            }, (a, b) -> null, null);
+        } finally {
+            timing.stop();
+        }
+    }
+
+    // COUNT ORDERS - orders in every shard, archived ones included
+    public int countOrders() {
+        OperationTimer.Timing timing = metrics.start("shards.countOrders");
+        try {
+            return fanOut(allShards(), DatabaseManager::countOrders, Integer::sum, 0);
+        } finally {
+            timing.stop();
+        }
+    }
+
+    // COUNT ORDERS BY STORE - order count per store, by store name
+    public Map<String, Integer> countOrdersByStore() {
+        OperationTimer.Timing timing = metrics.start("shards.countOrdersByStore");
+        try {
+            return new TreeMap<>(fanOutByShard(allShards(), (shard, db) -> Map.of(shard.store, db.countOrders()),
+                    (a, b) -> merged(a, b, Integer::sum), Map.of()));
+        } finally {
+            timing.stop();
+        }
+    }
+
+    // GET ORDER - one order with its items from whichever shard holds it; null if none does
+    public Order getOrder(String transactionId) {
+        OperationTimer.Timing timing = metrics.start("shards.getOrder");
+        try {
+            return fanOut(shardsForOrder(transactionId), db -> db.getOrder(transactionId), (a, b) -> a != null ? a : b, null);
+        } finally {
+            timing.stop();
+        }
+    }
+
+    // GET ORDERS BETWEEN - every store's orders dated in [from, to) with their items, newest first; null bounds are open
+    public List<Order> getOrdersBetween(LocalDateTime from, LocalDateTime to) {
+        OperationTimer.Timing timing = metrics.start("shards.getOrdersBetween");
+        try {
+            return fanOut(shardsBetween(from, to), db -> db.getOrdersBetween(from, to),
+                    (a, b) -> mergeSorted(a, b, DatabaseManager.NEWEST_FIRST, Integer.MAX_VALUE), List.of());
+        } finally {
+            timing.stop();
+        }
+    }
+
+    // GET ORDER SUMMARIES AFTER - keyset page of the history list across every store, newest first
+    // Each store is one task; a store partitioned by day reads its days newest first until it has a full page.
+    public List<OrderSummary> getOrderSummariesAfter(String afterDate, String afterTransactionId, int limit) {
+        OperationTimer.Timing timing = metrics.start("shards.getOrderSummariesAfter");
+        try {
+            LocalDate lastDay = afterDate != null ? dayOf(afterDate) : null;
+            List<List<Shard>> stores = new ArrayList<>();
+            for (List<Shard> days : byStore(allShards()).values()) {
+                List<Shard> newestFirst = new ArrayList<>();
+                for (Shard shard : days) {
+                    if (shard.day == null || lastDay == null || !shard.day.isAfter(lastDay)) newestFirst.add(shard);
+                }
+                newestFirst.sort(Comparator.comparing((Shard shard) -> shard.day, Comparator.nullsFirst(Comparator.naturalOrder())).reversed());
+                stores.add(newestFirst);
+            }
+            return new FanOut<List<Shard>, List<OrderSummary>>(stores, days -> {
+                List<OrderSummary> page = new ArrayList<>();
+                for (Shard shard : days) {
+                    int wanted = limit - page.size();
+                    page.addAll(withShard(shard, db -> db.getOrderSummariesAfter(afterDate, afterTransactionId, wanted)));
+                    if (page.size() >= limit) break;
+                }
+                return page;
+            }, (a, b) -> mergeSorted(a, b, DatabaseManager.SUMMARY_NEWEST_FIRST, limit), List.of()).run(fanOutPool);
+        } finally {
+            timing.stop();
+        }
+    }
+
+    // HOURLY SALES - order count and revenue per hour summed over every store, oldest hour first
+    public List<HourlySales> getHourlySales(LocalDateTime from, LocalDateTime to) {
+        OperationTimer.Timing timing = metrics.start("shards.getHourlySales");
+        try {
+            Map<String, HourlySales> byHour = fanOut(shardsBetween(from, to), db -> {
+                Map<String, HourlySales> hours = new TreeMap<>();
+                for (HourlySales sales : db.getSalesReports().getHourlySales(from, to)) {
+                    hours.put(sales.hour, sales);
+                }
+                return hours;
+            }, (a, b) -> merged(a, b, (x, y) -> new HourlySales(x.hour, x.orderCount + y.orderCount, x.revenue + y.revenue)), Map.of());
+            return new ArrayList<>(new TreeMap<>(byHour).values());
+        } finally {
+            timing.stop();
+        }
+    }
+
+    // ITEM SALES - donuts sold per menu item summed over every store, best sellers first
+    public List<ItemSales> getItemSales(LocalDateTime from, LocalDateTime to) {
+        OperationTimer.Timing timing = metrics.start("shards.getItemSales");
+        try {
+            Map<Integer, ItemSales> byItem = fanOut(shardsBetween(from, to), db -> {
+                Map<Integer, ItemSales> items = new LinkedHashMap<>();
+                for (ItemSales sales : db.getSalesReports().getItemSales(from, to)) {
+                    items.put(sales.menuItemId, sales);
+                }
+                return items;
+            }, (a, b) -> merged(a, b, (x, y) -> new ItemSales(null, x.menuItemId, x.name, x.category, x.quantity + y.quantity, x.revenue + y.revenue)), Map.of());
+            List<ItemSales> sales = new ArrayList<>(byItem.values());
+            sales.sort(Comparator.comparingInt((ItemSales item) -> item.quantity).reversed().thenComparingInt(item -> item.menuItemId));
+            return sales;
+        } finally {
+            timing.stop();
+        }
+    }
+
+    // CATEGORY SALES - item totals over every store grouped by category, highest revenue first
+    public List<CategorySales> getCategorySales(LocalDateTime from, LocalDateTime to) {
+        Map<String, CategorySales> byCategory = new LinkedHashMap<>();
+        for (ItemSales item : getItemSales(from, to)) {
+            CategorySales category = byCategory.computeIfAbsent(item.category, name -> new CategorySales(name, 0, 0));
+            category.quantity += item.quantity;
+            category.revenue += item.revenue;
+        }
+        List<CategorySales> sales = new ArrayList<>(byCategory.values());
+        sales.sort(Comparator.comparingDouble((CategorySales category) -> category.revenue).reversed());
+        return sales;
+    }
+
+    // CLOSE - stop the fan-out pool and shut down every open shard; the home database is left open
+    public void close() {
+        fanOutPool.shutdown();
+        for (Shard shard : shards.values()) {
+            synchronized (shard) {
+                if (shard.db == null) continue;
+                shard.db.shutDown();
+                shard.db = null;
+                openShards.decrementAndGet();
+            }
+        }
+    }
+
+    // FAN OUT BLOCK - run work against each shard on the fork-join pool, merging results as the halves complete
+    private <T> T fanOut(List<Shard> targets, Function<DatabaseManager, T> work, BinaryOperator<T> merge, T empty) {
+        return fanOutByShard(targets, (shard, db) -> work.apply(db), merge, empty);
+    }
+
+    private <T> T fanOutByShard(List<Shard> targets, BiFunction<Shard, DatabaseManager, T> work, BinaryOperator<T> merge, T empty) {
+        return new FanOut<>(targets, shard -> withShard(shard, db -> work.apply(shard, db)), merge, empty).run(fanOutPool);
+    }
+
+    // FanOut - splits its targets in half until one is left, forks the halves and merges their results
+    private static class FanOut<S, T> extends RecursiveTask<T> {
+        private final List<S> targets;
+        private final Function<S, T> work;
+        private final BinaryOperator<T> merge;
+        private final T empty;
+
+        FanOut(List<S> targets, Function<S, T> work, BinaryOperator<T> merge, T empty) {
+            this.targets = targets;
+            this.work = work;
+            this.merge = merge;
+            this.empty = empty;
+        }
+
+        T run(ForkJoinPool pool) {
+            return pool.invoke(this);
+        }
+
+        protected T compute() {
+            if (targets.isEmpty()) return empty;
+            if (targets.size() == 1) return work.apply(targets.get(0));
+            int middle = targets.size() / 2;
+            FanOut<S, T> left = new FanOut<>(targets.subList(0, middle), work, merge, empty);
+            FanOut<S, T> right = new FanOut<>(targets.subList(middle, targets.size()), work, merge, empty);
+            left.fork();
+            T rightResult = right.compute();
+            return merge.apply(left.join(), rightResult);
+        }
+    }
+
+    // MERGE HELPERS BLOCK - merges build new collections, so a task's result is never changed by another task
+    private static <T> List<T> mergeSorted(List<T> a, List<T> b, Comparator<? super T> order, int limit) {
+        List<T> merged = new ArrayList<>(Math.min(limit, a.size() + b.size()));
+        int i = 0;
+        int j = 0;
+        while (merged.size() < limit && (i < a.size() || j < b.size())) {
+            if (j == b.size() || (i < a.size() && order.compare(a.get(i), b.get(j)) <= 0)) {
+                merged.add(a.get(i++));
+            } else {
+                merged.add(b.get(j++));
+            }
+        }
+        return merged;
+    }
+
+    private static <K, V> Map<K, V> merged(Map<K, V> a, Map<K, V> b, BinaryOperator<V> combine) {
+        Map<K, V> merged = new LinkedHashMap<>(a);
+        b.forEach((key, value) -> merged.merge(key, value, combine));
+        return merged;
+    }
+
+    // ROUTING BLOCK
+    private Shard shardFor(String store, LocalDate day) {
+        checkStore(store);
+        LocalDate shardDay = perDay ? day : null;
+        String key = shardDay != null ? store + "/" + shardDay : store;
+        return shards.computeIfAbsent(key, k -> new Shard(store, shardDay, root.resolve(k)));
+    }
+
+    private Map<Shard, List<NewOrder>> groupByShard(String store, List<NewOrder> orders) {
+        Map<Shard, List<NewOrder>> groups = new LinkedHashMap<>();
+        for (NewOrder order : orders) {
+            groups.computeIfAbsent(shardFor(store, dayOf(order.date)), shard -> new ArrayList<>()).add(order);
+        }
+        return groups;
+    }
+
+    private List<Shard> allShards() {
+        return new ArrayList<>(shards.values());
+    }
+
+    // SHARDS FOR ORDER - shards that can hold the order with this ID. A TransactionIds ID carries the UTC time the
+    // order was taken, and the store's local day is within a day of that, so only those three days are asked.
+    private List<Shard> shardsForOrder(String transactionId) {
+        Instant created = TransactionIds.createdAt(transactionId);
+        if (!perDay || created == null) return allShards();
+        LocalDate utcDay = LocalDate.ofInstant(created, ZoneOffset.UTC);
+        List<Shard> candidates = new ArrayList<>();
+        for (Shard shard : shards.values()) {
+            if (!shard.day.isBefore(utcDay.minusDays(1)) && !shard.day.isAfter(utcDay.plusDays(1))) candidates.add(shard);
+        }
+        return candidates;
+    }
+
+    // SHARDS BETWEEN - shards that can hold orders dated in [from, to): every store shard, but only the days in range
+    private List<Shard> shardsBetween(LocalDateTime from, LocalDateTime to) {
+        List<Shard> inRange = new ArrayList<>();
+        for (Shard shard : shards.values()) {
+            if (shard.day != null) {
+                if (from != null && shard.day.isBefore(from.toLocalDate())) continue;
+                if (to != null && !shard.day.atStartOfDay().isBefore(to)) continue;
+            }
+            inRange.add(shard);
+        }
+        return inRange;
+    }
+
+    private static Map<String, List<Shard>> byStore(List<Shard> targets) {
+        Map<String, List<Shard>> stores = new TreeMap<>();
+        for (Shard shard : targets) {
+            stores.computeIfAbsent(shard.store, store -> new ArrayList<>()).add(shard);
+        }
+        return stores;
+    }
+
+    private static LocalDate dayOf(String date) {
+        return date != null ? LocalDate.parse(date.substring(0, 10)) : LocalDate.now();
+    }
+
+    private static String checkStore(String store) {
+        if (store == null || !STORE_NAME.matcher(store).matches()) {
+            throw new IllegalArgumentException("Store names are letters, digits, '-' and '_': " + store);
+        }
+        return store;
+    }
+
+    // DISCOVER - register the shards already on disk for this layout
+    private void discover() throws IOException {
+        try (DirectoryStream<Path> stores = Files.newDirectoryStream(root, Files::isDirectory)) {
+            for (Path storeDir : stores) {
+                String store = storeDir.getFileName().toString();
+                if (!STORE_NAME.matcher(store).matches()) continue;
+                if (!perDay) {
+                    if (Files.isDirectory(storeDir.resolve(DATABASE_NAME))) shardFor(store, null);
+                    continue;
+                }
+                try (DirectoryStream<Path> days = Files.newDirectoryStream(storeDir, Files::isDirectory)) {
+                    for (Path dayDir : days) {
+                        if (!Files.isDirectory(dayDir.resolve(DATABASE_NAME))) continue;
+                        try {
+                            shardFor(store, LocalDate.parse(dayDir.getFileName().toString()));
+                        } catch (DateTimeParseException e) {
+                            // not a day partition
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // SHARD USE BLOCK - a shard in use is never shut down; every acquire() is paired with a release()
+    private <T> T withShard(Shard shard, Function<DatabaseManager, T> work) {
+        DatabaseManager db = acquire(shard);
+        try {
+            return work.apply(db);
+        } finally {
+            release(shard);
+        }
+    }
+
+    // ACQUIRE - mark a shard in use, connecting to its database (and creating it with the home menu) if it is closed
+    private DatabaseManager acquire(Shard shard) {
+        synchronized (shard) {
+            if (shard.db == null) shard.db = open(shard);
+            shard.users++;
+            return shard.db;
+        }
+    }
+
+    // RELEASE - mark a shard no longer in use by this caller, then shut down idle shards if too many are open
+    private void release(Shard shard) {
+        synchronized (shard) {
+            shard.users--;
+            shard.lastUsed = System.nanoTime();
+        }
+        if (openShards.get() > MAX_OPEN_SHARDS) evictIdle();
+    }
+
+    // EVICT IDLE - shut down the least recently used shards nobody is using until at most MAX_OPEN_SHARDS are open
+    private void evictIdle() {
+        List<Shard> idle = new ArrayList<>();
+        Map<Shard, Long> lastUsed = new LinkedHashMap<>();
+        for (Shard shard : shards.values()) {
+            synchronized (shard) {
+                if (shard.db != null && shard.users == 0) {
+                    idle.add(shard);
+                    lastUsed.put(shard, shard.lastUsed);
+                }
+            }
+        }
+        idle.sort(Comparator.comparingLong(lastUsed::get));
+        for (Shard shard : idle) {
+            if (openShards.get() <= MAX_OPEN_SHARDS) return;
+            synchronized (shard) {
+                // skip a shard picked up again since the scan
+                if (shard.db == null || shard.users > 0) continue;
+                OperationTimer.Timing timing = metrics.start("shards.evict");
+                try {
+                    shard.db.shutDown();
+                } finally {
+                    shard.db = null;
+                    openShards.decrementAndGet();
+                    timing.stop();
+                }
+            }
+        }
+    }
+
+    // OPEN - connect to a shard's database, creating it with the home menu if it does not exist yet
+    private DatabaseManager open(Shard shard) {
+        OperationTimer.Timing timing = metrics.start("shards.open");
+        try {
+            boolean created = !Files.isDirectory(shard.dir.resolve(DATABASE_NAME));
+            DatabaseManager db = new DatabaseManager(DatabaseManager.urlFor(shard.dir), SHARD_POOL_SIZE, new OrderArchive(shard.dir.resolve("archive")));
+            if (created) copyHomeMenu(db);
+            openShards.incrementAndGet();
+            return db;
+        } catch (Exception e) {
+            timing.fail();
+            throw new IllegalStateException("Could not open shard " + shard.dir, e);
+        } finally {
+            timing.stop();
+        }
+    }
+
+    // COPY HOME MENU - replace a new shard's seed menu with the home menu, keeping the home IDs
+    private void copyHomeMenu(DatabaseManager db) throws SQLException {
+        List<MenuItem> menu = home.getMenuCatalog().getItems();
+        Set<Integer> homeIds = new HashSet<>();
+        for (MenuItem item : menu) {
+            homeIds.add(item.id);
+        }
+        for (MenuItem seeded : db.getMenuCatalog().getItems()) {
+            if (!homeIds.contains(seeded.id)) db.deleteMenuItem(seeded.id);
+        }
+        db.importMenuItems(menu.iterator(), MENU_BATCH);
+    }
+
+    // Shard - one store's database, or one store's database for one day; db, users and lastUsed are guarded by the
+    // shard's monitor
+    private static class Shard {
+        final String store;
+        final LocalDate day;
+        final Path dir;
+        DatabaseManager db;
+        int users;
+        long lastUsed;
+
+        Shard(String store, LocalDate day, Path dir) {
+            this.store = store;
+            this.day = day;
+            this.dir = dir;
+        }
+    }
+}
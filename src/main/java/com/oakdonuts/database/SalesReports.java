@@ -0,0 +1,136 @@
+package com.oakdonuts.database;
+
+import com.oakdonuts.metrics.MetricsRegistry;
+import com.oakdonuts.metrics.OperationTimer;
+import com.oakdonuts.models.CategorySales;
+import com.oakdonuts.models.HourlySales;
+import com.oakdonuts.models.ItemSales;
+import com.oakdonuts.models.MenuItem;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// SalesReports - sales questions answered from the hourly rollup tables instead of scanning order history
+// Every query reads only the rollup rows inside [from, to), so its cost depends on the window, not on how many orders exist.
+// Item names and categories come from the menu catalog; items since removed from the menu are reported as such.
+public class SalesReports {
+    private static final DateTimeFormatter HOUR_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String REMOVED_CATEGORY = "(removed)";
+
+    private final ConnectionPool pool;
+    private final MenuCatalog menuCatalog;
+    private final MetricsRegistry metrics;
+
+    SalesReports(ConnectionPool pool, MenuCatalog menuCatalog, MetricsRegistry metrics) {
+        this.pool = pool;
+        this.menuCatalog = menuCatalog;
+        this.metrics = metrics;
+    }
+
+    // HOURLY SALES - order count and revenue for each hour with sales, oldest first
+    public List<HourlySales> getHourlySales(LocalDateTime from, LocalDateTime to) {
+        List<HourlySales> sales = new ArrayList<>();
+        OperationTimer.Timing timing = metrics.start("reports.getHourlySales");
+        try (ConnectionPool.PooledConnection pc = pool.borrow()) {
+            PreparedStatement stmt = pc.prepare("SELECT HOUR_START, ORDER_COUNT, REVENUE FROM SALES_HOURLY "
+                    + "WHERE HOUR_START >= ? AND HOUR_START < ? AND ORDER_COUNT <> 0 ORDER BY HOUR_START");
+            setWindow(stmt, from, to);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    sales.add(new HourlySales(formatHour(rs.getTimestamp(1)), rs.getInt(2), rs.getDouble(3)));
+                }
+            }
+        } catch (Exception e) {
+            timing.fail();
+            e.printStackTrace();
+        } finally {
+            timing.stop();
+        }
+        return sales;
+    }
+
+    // ITEM SALES BY HOUR - donuts sold per item per hour, oldest hour first, best sellers first within an hour
+    public List<ItemSales> getItemSalesByHour(LocalDateTime from, LocalDateTime to) {
+        List<ItemSales> sales = new ArrayList<>();
+        OperationTimer.Timing timing = metrics.start("reports.getItemSalesByHour");
+        try (ConnectionPool.PooledConnection pc = pool.borrow()) {
+            PreparedStatement stmt = pc.prepare("SELECT HOUR_START, MENU_ITEM_ID, QUANTITY, REVENUE FROM SALES_HOURLY_ITEMS "
+                    + "WHERE HOUR_START >= ? AND HOUR_START < ? AND QUANTITY <> 0 ORDER BY HOUR_START, QUANTITY DESC, MENU_ITEM_ID");
+            setWindow(stmt, from, to);
+            try (ResultSet rs = stmt.executeQuery()) {
+                MenuCatalog.Snapshot menu = menuCatalog.snapshot();
+                while (rs.next()) {
+                    sales.add(itemSales(menu, formatHour(rs.getTimestamp(1)), rs.getInt(2), rs.getInt(3), rs.getDouble(4)));
+                }
+            }
+        } catch (Exception e) {
+            timing.fail();
+            e.printStackTrace();
+        } finally {
+            timing.stop();
+        }
+        return sales;
+    }
+
+    // ITEM SALES - donuts sold per item over the whole window, best sellers first
+    public List<ItemSales> getItemSales(LocalDateTime from, LocalDateTime to) {
+        List<ItemSales> sales = new ArrayList<>();
+        OperationTimer.Timing timing = metrics.start("reports.getItemSales");
+        try (ConnectionPool.PooledConnection pc = pool.borrow()) {
+            PreparedStatement stmt = pc.prepare("SELECT MENU_ITEM_ID, SUM(QUANTITY), SUM(REVENUE) FROM SALES_HOURLY_ITEMS "
+                    + "WHERE HOUR_START >= ? AND HOUR_START < ? GROUP BY MENU_ITEM_ID HAVING SUM(QUANTITY) <> 0 ORDER BY 2 DESC, 1");
+            setWindow(stmt, from, to);
+            try (ResultSet rs = stmt.executeQuery()) {
+                MenuCatalog.Snapshot menu = menuCatalog.snapshot();
+                while (rs.next()) {
+                    sales.add(itemSales(menu, null, rs.getInt(1), rs.getInt(2), rs.getDouble(3)));
+                }
+            }
+        } catch (Exception e) {
+            timing.fail();
+            e.printStackTrace();
+        } finally {
+            timing.stop();
+        }
+        return sales;
+    }
+
+    // CATEGORY SALES - item totals for the window grouped by each item's current menu category, highest revenue first
+    public List<CategorySales> getCategorySales(LocalDateTime from, LocalDateTime to) {
+        Map<String, CategorySales> byCategory = new LinkedHashMap<>();
+        for (ItemSales item : getItemSales(from, to)) {
+            CategorySales category = byCategory.computeIfAbsent(item.category, name -> new CategorySales(name, 0, 0));
+            category.quantity += item.quantity;
+            category.revenue += item.revenue;
+        }
+        List<CategorySales> sales = new ArrayList<>(byCategory.values());
+        sales.sort(Comparator.comparingDouble((CategorySales category) -> category.revenue).reversed());
+        return sales;
+    }
+
+    // HELPERS BLOCK
+    private static void setWindow(PreparedStatement stmt, LocalDateTime from, LocalDateTime to) throws SQLException {
+        stmt.setTimestamp(1, Timestamp.valueOf(from));
+        stmt.setTimestamp(2, Timestamp.valueOf(to));
+    }
+
+    private static ItemSales itemSales(MenuCatalog.Snapshot menu, String hour, int menuItemId, int quantity, double revenue) {
+        MenuItem item = menu.byId.get(menuItemId);
+        String name = item != null ? item.name : "Item #" + menuItemId;
+        String category = item != null ? item.category : REMOVED_CATEGORY;
+        return new ItemSales(hour, menuItemId, name, category, quantity, revenue);
+    }
+
+    private static String formatHour(Timestamp hour) {
+        return hour.toLocalDateTime().format(HOUR_FORMAT);
+    }
+}
@@ -0,0 +1,129 @@
+package com.oakdonuts.database;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.TreeMap;
+
+// SalesRollups - hourly sales tables kept in step with ORDERS and ORDER_ITEMS inside the same transactions
+//   SALES_HOURLY        (HOUR_START)                 ORDER_COUNT, REVENUE   from ORDERS.TOTAL_PRICE
+//   SALES_HOURLY_ITEMS  (HOUR_START, MENU_ITEM_ID)   QUANTITY, REVENUE      from line quantity x UNIT_PRICE
+// Cancelled orders are left out; cancelling, un-cancelling and deleting an order subtract or add back its share.
+class SalesRollups {
+    static final String CANCELLED = "cancelled";
+
+    private static final String UPDATE_HOUR = "UPDATE SALES_HOURLY SET ORDER_COUNT=ORDER_COUNT+?, REVENUE=REVENUE+? WHERE HOUR_START=?";
+    private static final String INSERT_HOUR = "INSERT INTO SALES_HOURLY (HOUR_START, ORDER_COUNT, REVENUE) VALUES (?, ?, ?)";
+    private static final String UPDATE_ITEM = "UPDATE SALES_HOURLY_ITEMS SET QUANTITY=QUANTITY+?, REVENUE=REVENUE+? WHERE HOUR_START=? AND MENU_ITEM_ID=?";
+    private static final String INSERT_ITEM = "INSERT INTO SALES_HOURLY_ITEMS (HOUR_START, MENU_ITEM_ID, QUANTITY, REVENUE) VALUES (?, ?, ?, ?)";
+    private static final String DUPLICATE_KEY = "23505";
+
+    // COUNTS - whether an order with this status belongs in the rollups
+    static boolean counts(String status) {
+        return status == null || !status.equalsIgnoreCase(CANCELLED);
+    }
+
+    // HOUR OF - the rollup bucket an order date falls in
+    static Timestamp hourOf(Timestamp orderDate) {
+        return Timestamp.valueOf(orderDate.toLocalDateTime().truncatedTo(ChronoUnit.HOURS));
+    }
+
+    // MONEY - revenue is kept as DECIMAL(15,2) so adding and later subtracting an order leaves exactly zero
+    static BigDecimal money(double amount) {
+        return BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    // Delta - rollup changes gathered during one transaction and written once per bucket before commit
+    // Buckets are written in key order so concurrent writers lock rollup rows in the same order.
+    static class Delta {
+        private final Map<Timestamp, Bucket> hours = new TreeMap<>();
+        private final Map<Timestamp, Map<Integer, Bucket>> items = new TreeMap<>();
+
+        // ADD ORDER - one order's count and total, sign +1 to add or -1 to take it back out
+        void addOrder(Timestamp orderDate, double totalPrice, int sign) {
+            Bucket bucket = hours.computeIfAbsent(hourOf(orderDate), hour -> new Bucket());
+            bucket.count += sign;
+            bucket.revenue = bucket.revenue.add(money(totalPrice).multiply(BigDecimal.valueOf(sign)));
+        }
+
+        // ADD LINE - one order line; lines without a known unit price count toward quantity only
+        void addLine(Timestamp orderDate, int menuItemId, int quantity, Double unitPrice, int sign) {
+            Bucket bucket = items.computeIfAbsent(hourOf(orderDate), hour -> new TreeMap<>()).computeIfAbsent(menuItemId, id -> new Bucket());
+            bucket.count += sign * quantity;
+            if (unitPrice != null) {
+                bucket.revenue = bucket.revenue.add(money(unitPrice).multiply(BigDecimal.valueOf((long) sign * quantity)));
+            }
+        }
+
+        // ADD STORED ORDER - an order already in the database, read back with its lines
+        void addStoredOrder(Statements stmts, String transactionId, Timestamp orderDate, double totalPrice, int sign) throws SQLException {
+            if (orderDate == null) return;
+            addOrder(orderDate, totalPrice, sign);
+            PreparedStatement lines = stmts.prepare("SELECT MENU_ITEM_ID, QUANTITY, UNIT_PRICE FROM ORDER_ITEMS WHERE TRANSACTION_ID=?");
+            lines.setString(1, transactionId);
+            try (ResultSet rs = lines.executeQuery()) {
+                while (rs.next()) {
+                    double price = rs.getDouble(3);
+                    addLine(orderDate, rs.getInt(1), rs.getInt(2), rs.wasNull() ? null : price, sign);
+                }
+            }
+        }
+
+        // APPLY - add every bucket to its rollup row, creating rows the first time an hour or item is seen
+        void apply(Statements stmts) throws SQLException {
+            for (Map.Entry<Timestamp, Bucket> hour : hours.entrySet()) {
+                Bucket bucket = hour.getValue();
+                if (bucket.count == 0 && bucket.revenue.signum() == 0) continue;
+                upsert(stmts, UPDATE_HOUR, INSERT_HOUR, hour.getKey(), null, bucket);
+            }
+            for (Map.Entry<Timestamp, Map<Integer, Bucket>> hour : items.entrySet()) {
+                for (Map.Entry<Integer, Bucket> item : hour.getValue().entrySet()) {
+                    Bucket bucket = item.getValue();
+                    if (bucket.count == 0 && bucket.revenue.signum() == 0) continue;
+                    upsert(stmts, UPDATE_ITEM, INSERT_ITEM, hour.getKey(), item.getKey(), bucket);
+                }
+            }
+        }
+
+        // UPSERT - update the existing row, else insert it; if another transaction inserted it first, update after all
+        private static void upsert(Statements stmts, String updateSql, String insertSql, Timestamp hour, Integer menuItemId, Bucket bucket) throws SQLException {
+            if (update(stmts, updateSql, hour, menuItemId, bucket)) return;
+            PreparedStatement insert = stmts.prepare(insertSql);
+            int param = 1;
+            insert.setTimestamp(param++, hour);
+            if (menuItemId != null) insert.setInt(param++, menuItemId);
+            insert.setInt(param++, bucket.count);
+            insert.setBigDecimal(param, bucket.revenue);
+            try {
+                insert.executeUpdate();
+            } catch (SQLException e) {
+                if (!DUPLICATE_KEY.equals(e.getSQLState()) || !update(stmts, updateSql, hour, menuItemId, bucket)) throw e;
+            }
+        }
+
+        private static boolean update(Statements stmts, String updateSql, Timestamp hour, Integer menuItemId, Bucket bucket) throws SQLException {
+            PreparedStatement update = stmts.prepare(updateSql);
+            update.setInt(1, bucket.count);
+            update.setBigDecimal(2, bucket.revenue);
+            update.setTimestamp(3, hour);
+            if (menuItemId != null) update.setInt(4, menuItemId);
+            return update.executeUpdate() > 0;
+        }
+    }
+
+    // Bucket - running count (orders or donuts) and revenue for one rollup row
+    private static class Bucket {
+        int count;
+        BigDecimal revenue = BigDecimal.ZERO;
+    }
+
+    // Statements - where rollup SQL is prepared: a pooled connection's cache, or a plain connection during migration
+    interface Statements {
+        PreparedStatement prepare(String sql) throws SQLException;
+    }
+}
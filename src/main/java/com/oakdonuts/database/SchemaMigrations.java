@@ -0,0 +1,231 @@
+package com.oakdonuts.database;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+// SchemaMigrations - versioned, in-place upgrades of the database schema
+// The applied version is stored in SCHEMA_VERSION. Each step runs in its own transaction together with its
+// SCHEMA_VERSION row, so a failed step leaves the database at the previous version and is retried on next start.
+// Databases created before versioning existed start at version 0; the early steps check what is already there.
+// Append new steps to the end of MIGRATIONS, never edit or reorder ones that have shipped.
+class SchemaMigrations {
+
+    // MIGRATIONS - in version order
+    private static final Migration[] MIGRATIONS = {
+            new Migration(1, "Baseline tables", SchemaMigrations::createBaseline),
+            new Migration(2, "Quantity column on order lines", SchemaMigrations::addQuantity),
+            new Migration(3, "Order lines reference their order", SchemaMigrations::addOrderForeignKey),
+            new Migration(4, "ORDER_DATE as TIMESTAMP", SchemaMigrations::orderDateToTimestamp),
+            new Migration(5, "Index for newest-first history", SchemaMigrations::addOrderDateIndex),
+            new Migration(6, "Hourly sales rollups", SchemaMigrations::addSalesRollups),
+            new Migration(7, "Menu item IDs can be given on insert", SchemaMigrations::allowMenuItemIds),
+            new Migration(8, "Index for open orders by status", SchemaMigrations::addOrderStatusIndex),
+            new Migration(9, "Item names on order lines", SchemaMigrations::addLineItemNames),
+    };
+
+    // MIGRATE - apply every step newer than the stored version; returns the version the database is now at
+    static int migrate(Connection conn) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            int current = currentVersion(conn);
+            for (Migration migration : MIGRATIONS) {
+                if (migration.version <= current) continue;
+                long start = System.nanoTime();
+                try {
+                    migration.step.apply(conn);
+                    PreparedStatement record = conn.prepareStatement("INSERT INTO SCHEMA_VERSION (VERSION, DESCRIPTION, APPLIED_AT) VALUES (?, ?, CURRENT_TIMESTAMP)");
+                    record.setInt(1, migration.version);
+                    record.setString(2, migration.description);
+                    record.executeUpdate();
+                    record.close();
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw new SQLException("Schema migration " + migration.version + " (" + migration.description + ") failed", e);
+                }
+                current = migration.version;
+                System.out.printf("Applied schema migration %d: %s (%d ms)%n", migration.version, migration.description, (System.nanoTime() - start) / 1_000_000);
+            }
+            return current;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    // CURRENT VERSION - highest applied version, creating the version table on first run
+    private static int currentVersion(Connection conn) throws SQLException {
+        if (!tableExists(conn, "SCHEMA_VERSION")) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE SCHEMA_VERSION (VERSION INT PRIMARY KEY, DESCRIPTION VARCHAR(200), APPLIED_AT TIMESTAMP)");
+            }
+            conn.commit();
+        }
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(VERSION), 0) FROM SCHEMA_VERSION")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    // VERSION 1 - the original tables, created only if this database does not have them yet
+    private static void createBaseline(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            if (!tableExists(conn, "MENU_ITEMS")) {
+                stmt.execute("CREATE TABLE MENU_ITEMS (ID INT PRIMARY KEY GENERATED ALWAYS AS IDENTITY, NAME VARCHAR(100), DESCRIPTION VARCHAR(500), PRICE DOUBLE, CATEGORY VARCHAR(50))");
+            }
+            if (!tableExists(conn, "ORDERS")) {
+                stmt.execute("CREATE TABLE ORDERS (TRANSACTION_ID VARCHAR(50) PRIMARY KEY, ORDER_DATE VARCHAR(50), TOTAL_PRICE DOUBLE, STATUS VARCHAR(20))");
+            }
+            if (!tableExists(conn, "ORDER_ITEMS")) {
+                stmt.execute("CREATE TABLE ORDER_ITEMS (ID INT PRIMARY KEY GENERATED ALWAYS AS IDENTITY, TRANSACTION_ID VARCHAR(50), MENU_ITEM_ID INT)");
+            }
+        }
+    }
+
+    // VERSION 2 - one row per (order, menu item) with a quantity; older rows were one per donut
+    private static void addQuantity(Connection conn) throws SQLException {
+        if (columnExists(conn, "ORDER_ITEMS", "QUANTITY")) return;
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE ORDER_ITEMS ADD COLUMN QUANTITY INT NOT NULL DEFAULT 1");
+        }
+    }
+
+    // VERSION 3 - foreign key from lines to orders; Derby backs it with an index on ORDER_ITEMS.TRANSACTION_ID,
+    // which turns the per-order line lookups and item-count subqueries from table scans into index probes
+    // Lines whose order is already gone (left by the old non-transactional delete) are removed first.
+    private static void addOrderForeignKey(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            int orphans = stmt.executeUpdate("DELETE FROM ORDER_ITEMS WHERE TRANSACTION_ID IS NULL "
+                    + "OR NOT EXISTS (SELECT 1 FROM ORDERS o WHERE o.TRANSACTION_ID=ORDER_ITEMS.TRANSACTION_ID)");
+            if (orphans > 0) {
+                System.out.println("Removed " + orphans + " order lines with no matching order");
+            }
+            stmt.execute("ALTER TABLE ORDER_ITEMS ADD CONSTRAINT FK_ORDER_ITEMS_ORDER FOREIGN KEY (TRANSACTION_ID) REFERENCES ORDERS (TRANSACTION_ID)");
+        }
+    }
+
+    // VERSION 4 - ORDER_DATE becomes a real TIMESTAMP so it sorts and compares as a date, not as text
+    // Rebuilt through a new column because Derby cannot change a VARCHAR column's type in place.
+    private static void orderDateToTimestamp(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE ORDERS ADD COLUMN ORDER_TS TIMESTAMP");
+            stmt.executeUpdate("UPDATE ORDERS SET ORDER_TS = TIMESTAMP(ORDER_DATE) WHERE ORDER_DATE IS NOT NULL");
+            stmt.execute("ALTER TABLE ORDERS DROP COLUMN ORDER_DATE");
+            stmt.execute("RENAME COLUMN ORDERS.ORDER_TS TO ORDER_DATE");
+        }
+    }
+
+    // VERSION 5 - index matching the history list's ORDER BY, so the newest page is read straight off the index
+    private static void addOrderDateIndex(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE INDEX IDX_ORDERS_DATE ON ORDERS (ORDER_DATE DESC, TRANSACTION_ID DESC)");
+        }
+    }
+
+    // VERSION 6 - line unit prices plus the hourly rollup tables (see SalesRollups), filled from existing history
+    // Lines saved before this version get today's menu price, the best record of what they cost.
+    private static void addSalesRollups(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE ORDER_ITEMS ADD COLUMN UNIT_PRICE DOUBLE");
+            stmt.executeUpdate("UPDATE ORDER_ITEMS SET UNIT_PRICE = (SELECT m.PRICE FROM MENU_ITEMS m WHERE m.ID=ORDER_ITEMS.MENU_ITEM_ID)");
+            stmt.execute("CREATE TABLE SALES_HOURLY (HOUR_START TIMESTAMP PRIMARY KEY, ORDER_COUNT INT NOT NULL, REVENUE DECIMAL(15,2) NOT NULL)");
+            stmt.execute("CREATE TABLE SALES_HOURLY_ITEMS (HOUR_START TIMESTAMP NOT NULL, MENU_ITEM_ID INT NOT NULL, QUANTITY INT NOT NULL, "
+                    + "REVENUE DECIMAL(15,2) NOT NULL, PRIMARY KEY (HOUR_START, MENU_ITEM_ID))");
+
+            SalesRollups.Delta delta = new SalesRollups.Delta();
+            try (ResultSet rs = stmt.executeQuery("SELECT ORDER_DATE, TOTAL_PRICE, STATUS FROM ORDERS WHERE ORDER_DATE IS NOT NULL")) {
+                while (rs.next()) {
+                    if (SalesRollups.counts(rs.getString(3))) delta.addOrder(rs.getTimestamp(1), rs.getDouble(2), 1);
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT o.ORDER_DATE, o.STATUS, oi.MENU_ITEM_ID, oi.QUANTITY, oi.UNIT_PRICE "
+                    + "FROM ORDER_ITEMS oi JOIN ORDERS o ON o.TRANSACTION_ID=oi.TRANSACTION_ID WHERE o.ORDER_DATE IS NOT NULL")) {
+                while (rs.next()) {
+                    if (!SalesRollups.counts(rs.getString(2))) continue;
+                    double price = rs.getDouble(5);
+                    delta.addLine(rs.getTimestamp(1), rs.getInt(3), rs.getInt(4), rs.wasNull() ? null : price, 1);
+                }
+            }
+            Map<String, PreparedStatement> statements = new HashMap<>();
+            try {
+                delta.apply(sql -> {
+                    PreparedStatement prepared = statements.get(sql);
+                    if (prepared == null) {
+                        prepared = conn.prepareStatement(sql);
+                        statements.put(sql, prepared);
+                    }
+                    return prepared;
+                });
+            } finally {
+                for (PreparedStatement prepared : statements.values()) {
+                    prepared.close();
+                }
+            }
+        }
+    }
+
+    // VERSION 7 - menu IDs stay generated by default but may be supplied, so an imported menu keeps the IDs
+    // its order history refers to
+    private static void allowMenuItemIds(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE MENU_ITEMS ALTER COLUMN ID SET GENERATED BY DEFAULT");
+        }
+    }
+
+    // VERSION 8 - the kitchen queue loads open orders by status at startup; without this it scans all of history
+    private static void addOrderStatusIndex(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE INDEX IDX_ORDERS_STATUS ON ORDERS (STATUS, ORDER_DATE)");
+        }
+    }
+
+    // VERSION 9 - each line keeps the item name it was sold under, so history no longer depends on MENU_ITEMS
+    // Existing lines get the item's current name, and a price if they still had none; lines for items already
+    // deleted from the menu keep a null name and are shown by ID.
+    private static void addLineItemNames(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE ORDER_ITEMS ADD COLUMN ITEM_NAME VARCHAR(100)");
+            stmt.executeUpdate("UPDATE ORDER_ITEMS SET ITEM_NAME = (SELECT m.NAME FROM MENU_ITEMS m WHERE m.ID=ORDER_ITEMS.MENU_ITEM_ID)");
+            stmt.executeUpdate("UPDATE ORDER_ITEMS SET UNIT_PRICE = (SELECT m.PRICE FROM MENU_ITEMS m WHERE m.ID=ORDER_ITEMS.MENU_ITEM_ID) WHERE UNIT_PRICE IS NULL");
+        }
+    }
+
+    // METADATA HELPERS BLOCK - Derby stores unquoted identifiers in upper case
+    private static boolean tableExists(Connection conn, String table) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        try (ResultSet rs = meta.getTables(null, conn.getSchema(), table, new String[]{"TABLE"})) {
+            return rs.next();
+        }
+    }
+
+    private static boolean columnExists(Connection conn, String table, String column) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        try (ResultSet rs = meta.getColumns(null, conn.getSchema(), table, column)) {
+            return rs.next();
+        }
+    }
+
+    // Migration - one numbered schema change
+    private static class Migration {
+        final int version;
+        final String description;
+        final Step step;
+
+        Migration(int version, String description, Step step) {
+            this.version = version;
+            this.description = description;
+            this.step = step;
+        }
+    }
+
+    private interface Step {
+        void apply(Connection conn) throws SQLException;
+    }
+}
@@ -0,0 +1,59 @@
+package com.oakdonuts.events;
+
+import com.oakdonuts.models.MenuItem;
+import com.oakdonuts.models.OrderSummary;
+
+// DataChange - one committed change to the menu or the orders, as published by DatabaseManager.getChanges()
+// Menu changes carry the item as it now is (as it was, for a delete); a created order carries its history row, a
+// status change the new status, and a delete only the transaction ID.
+public class DataChange {
+    public enum Kind { ITEM_ADDED, ITEM_UPDATED, ITEM_DELETED, ORDER_CREATED, ORDER_STATUS_CHANGED, ORDER_DELETED }
+
+    public final Kind kind;
+    public final MenuItem item;
+    public final OrderSummary order;
+    public final String transactionId;
+    public final String status;
+
+    private DataChange(Kind kind, MenuItem item, OrderSummary order, String transactionId, String status) {
+        this.kind = kind;
+        this.item = item;
+        this.order = order;
+        this.transactionId = transactionId;
+        this.status = status;
+    }
+
+    public static DataChange itemAdded(MenuItem item) {
+        return new DataChange(Kind.ITEM_ADDED, item, null, null, null);
+    }
+
+    public static DataChange itemUpdated(MenuItem item) {
+        return new DataChange(Kind.ITEM_UPDATED, item, null, null, null);
+    }
+
+    public static DataChange itemDeleted(MenuItem item) {
+        return new DataChange(Kind.ITEM_DELETED, item, null, null, null);
+    }
+
+    public static DataChange orderCreated(OrderSummary order) {
+        return new DataChange(Kind.ORDER_CREATED, null, order, order.transactionId, order.status);
+    }
+
+    public static DataChange orderStatusChanged(String transactionId, String status) {
+        return new DataChange(Kind.ORDER_STATUS_CHANGED, null, null, transactionId, status);
+    }
+
+    public static DataChange orderDeleted(String transactionId) {
+        return new DataChange(Kind.ORDER_DELETED, null, null, transactionId, null);
+    }
+
+    // IS MENU CHANGE - true for the three item kinds
+    public boolean isMenuChange() {
+        return item != null;
+    }
+
+    // TOSTRING - kind plus the item or order it is about
+    public String toString() {
+        return kind + " " + (item != null ? item.id + " " + item.name : transactionId);
+    }
+}
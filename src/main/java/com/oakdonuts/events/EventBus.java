@@ -0,0 +1,29 @@
+package com.oakdonuts.events;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+// EventBus - in-process publish/subscribe for one kind of event
+// Events are delivered on the publishing thread, in subscription order; subscribers that touch Swing must hand off
+// to the event dispatch thread themselves. A failing subscriber is logged and does not stop delivery to the rest.
+public class EventBus<E> {
+    private final List<Consumer<? super E>> subscribers = new CopyOnWriteArrayList<>();
+
+    // SUBSCRIBE - receive every event published from now on; run the returned handle to unsubscribe
+    public Runnable subscribe(Consumer<? super E> subscriber) {
+        subscribers.add(subscriber);
+        return () -> subscribers.remove(subscriber);
+    }
+
+    // PUBLISH - deliver an event to every subscriber
+    public void publish(E event) {
+        for (Consumer<? super E> subscriber : subscribers) {
+            try {
+                subscriber.accept(event);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
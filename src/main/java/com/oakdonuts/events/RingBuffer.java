@@ -0,0 +1,74 @@
+package com.oakdonuts.events;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// RingBuffer - lock-free buffer of the last N items, each tagged with an ever-increasing sequence number
+// Writers claim a sequence with one atomic increment and publish into its slot unless a newer item is already there;
+// readers never block writers.
+// A reader keeps the next sequence it wants and calls readFrom() again when told more has arrived.
+public class RingBuffer<E> {
+    private final AtomicReferenceArray<Entry<E>> slots;
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final int capacity;
+
+    // CONSTRUCTOR - keep the most recent capacity items
+    public RingBuffer(int capacity) {
+        this.capacity = capacity;
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    // ADD - append an item, overwriting the oldest once full; returns its sequence number
+    // A writer that stalls between claiming and publishing may find its slot already lapped; its item is then dropped
+    // rather than put over the newer one, which readers would take for a slot not yet filled.
+    public long add(E item) {
+        long sequence = nextSequence.getAndIncrement();
+        Entry<E> entry = new Entry<>(sequence, item);
+        int index = index(sequence);
+        for (Entry<E> observed = slots.get(index); observed == null || observed.sequence < sequence; observed = slots.get(index)) {
+            if (slots.compareAndSet(index, observed, entry)) break;
+        }
+        return sequence;
+    }
+
+    // READ FROM - items from this sequence on that are still in the buffer, oldest first
+    // Stops early at a slot whose writer has claimed it but not filled it yet; that item comes with the next read.
+    public List<Entry<E>> readFrom(long sequence) {
+        long end = nextSequence.get();
+        long start = Math.max(sequence, end - capacity);
+        List<Entry<E>> entries = new ArrayList<>((int) Math.max(0, end - start));
+        for (long s = start; s < end; s++) {
+            Entry<E> entry = slots.get(index(s));
+            if (entry == null || entry.sequence < s) break;
+            if (entry.sequence > s) continue; // already lapped by a newer item
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    // NEXT SEQUENCE - the sequence the next added item will get
+    public long getNextSequence() {
+        return nextSequence.get();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence % capacity);
+    }
+
+    // Entry - an item and its sequence number
+    public static class Entry<E> {
+        public final long sequence;
+        public final E item;
+
+        Entry(long sequence, E item) {
+            this.sequence = sequence;
+            this.item = item;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.oakdonuts.journal;
+
+import com.oakdonuts.database.DatabaseManager;
+import com.oakdonuts.models.NewOrder;
+import com.oakdonuts.models.OrderLine;
+import com.oakdonuts.util.Json;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// JournaledOrderWriter - acknowledges orders once they are in the journal, then batch-inserts them into Derby in the background
+// A batch that keeps failing while Derby is up is inserted one order at a time, and orders that still fail are moved
+// to the quarantine file next to the journal (DataTransfer orders NDJSON, so they can be fixed and imported later).
+public class JournaledOrderWriter implements AutoCloseable {
+    private static final int DEFAULT_CAPACITY = 8 * 1024 * 1024;
+    private static final int MAX_BATCH = 256;
+    private static final int MAX_BATCH_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MS = 1000;
+
+    private final DatabaseManager db;
+    private final OrderJournal journal;
+    private final Path quarantineFile;
+    private final BlockingQueue<OrderJournal.JournalRecord> queue = new LinkedBlockingQueue<>();
+    private final List<Consumer<List<NewOrder>>> flushListeners = new CopyOnWriteArrayList<>();
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    // OPEN - open the journal and replay anything left from a previous run before returning, then start the flusher
+    public static JournaledOrderWriter open(DatabaseManager db, Path file) throws IOException {
+        return open(db, file, DEFAULT_CAPACITY);
+    }
+
+    // OPEN WITH CAPACITY - journal file size in bytes; placeOrder blocks while this much is waiting to be flushed
+    public static JournaledOrderWriter open(DatabaseManager db, Path file, int capacity) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        return new JournaledOrderWriter(db, new OrderJournal(file, capacity), file.resolveSibling(file.getFileName() + ".quarantine.ndjson"));
+    }
+
+    private JournaledOrderWriter(DatabaseManager db, OrderJournal journal, Path quarantineFile) throws IOException {
+        this.db = db;
+        this.journal = journal;
+        this.quarantineFile = quarantineFile;
+        replay(journal.recover());
+        flusher = Thread.ofPlatform().name("oak-journal-flusher").daemon().start(this::flushLoop);
+    }
+
+    // REPLAY - apply recovered orders synchronously; ones that already reached Derby are skipped by createOrders
+    private void replay(List<OrderJournal.JournalRecord> records) throws IOException {
+        if (records.isEmpty()) return;
+        List<NewOrder> orders = new ArrayList<>();
+        for (OrderJournal.JournalRecord record : records) {
+            orders.add(record.order);
+        }
+        if (db.createOrders(orders) < 0 && salvage(orders) == null) {
+            throw new IOException("Could not replay " + records.size() + " journaled orders into the database");
+        }
+        journal.markApplied(records);
+        System.out.println("Replayed " + records.size() + " journaled orders");
+    }
+
+    // PLACE ORDER - durable once this returns true; the order shows up in Derby shortly after
+    public boolean placeOrder(String transactionId, String date, double totalPrice, List<OrderLine> lines) {
+        try {
+            queue.add(journal.append(new NewOrder(transactionId, date, totalPrice, lines)));
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // FLUSH LISTENERS - told which orders just became visible in the database
+    public void addFlushListener(Consumer<List<NewOrder>> listener) {
+        flushListeners.add(listener);
+    }
+
+    // FLUSH LOOP - drain whatever has queued up, insert it in one transaction, then release it from the journal
+    private void flushLoop() {
+        List<OrderJournal.JournalRecord> batch = new ArrayList<>();
+        int attempts = 0;
+        while (running || !queue.isEmpty() || !batch.isEmpty()) {
+            try {
+                if (batch.isEmpty()) {
+                    OrderJournal.JournalRecord first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) continue;
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                }
+                List<NewOrder> orders = new ArrayList<>(batch.size());
+                for (OrderJournal.JournalRecord record : batch) {
+                    orders.add(record.order);
+                }
+                if (db.createOrders(orders) < 0) {
+                    List<NewOrder> salvaged = ++attempts >= MAX_BATCH_ATTEMPTS ? salvage(orders) : null;
+                    if (salvaged == null) {
+                        // keep the batch and retry; the orders stay safe in the journal meanwhile
+                        if (!running) return;
+                        Thread.sleep(RETRY_DELAY_MS);
+                        continue;
+                    }
+                    orders = salvaged;
+                }
+                attempts = 0;
+                journal.markApplied(batch);
+                batch.clear();
+                for (Consumer<List<NewOrder>> listener : flushListeners) {
+                    listener.accept(orders);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                // the quarantine file could not be written: keep the batch and try again later
+                e.printStackTrace();
+                try {
+                    Thread.sleep(RETRY_DELAY_MS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // SALVAGE - insert a failing batch one order at a time and quarantine the orders that still fail, so one bad
+    // record cannot hold back every order behind it. Returns the orders that reached Derby, or null if Derby itself
+    // is unreachable, in which case nothing is quarantined and the batch waits for it to come back.
+    private List<NewOrder> salvage(List<NewOrder> orders) throws IOException {
+        if (!db.isReachable()) return null;
+        List<NewOrder> inserted = new ArrayList<>();
+        for (NewOrder order : orders) {
+            if (db.createOrders(List.of(order)) >= 0) {
+                inserted.add(order);
+            } else {
+                quarantine(order);
+            }
+        }
+        return inserted;
+    }
+
+    // QUARANTINE - append the order to the quarantine file and flush it to disk before the journal lets it go
+    private void quarantine(NewOrder order) throws IOException {
+        String line = Json.write(order.toJson()) + "\n";
+        Files.writeString(quarantineFile, line, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+        System.err.println("Order " + order.transactionId + " could not be saved to the database; moved to " + quarantineFile);
+    }
+
+    // CLOSE - flush what is queued, then unmap the journal; anything not flushed is replayed on next start
+    public void close() {
+        running = false;
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+            journal.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
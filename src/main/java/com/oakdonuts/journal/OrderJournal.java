@@ -0,0 +1,230 @@
+package com.oakdonuts.journal;
+
+import com.oakdonuts.models.NewOrder;
+import com.oakdonuts.models.OrderLine;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32C;
+
+// OrderJournal - memory-mapped, checksummed ring of orders that have been acknowledged but not yet applied to Derby
+//
+// File layout: a 32-byte header, then records laid end to end, wrapping back to the header when the file end is reached.
+//   header: int MAGIC, int VERSION, long tailSeq, int tailOffset   (oldest unapplied record)
+//   record: int payloadLength, long seq, int crc32c(seq + payload), payload
+//   wrap marker: int -1 (or fewer than 4 bytes left) means the next record starts right after the header
+// Sequence numbers only ever grow, so recovery stops at the first record whose seq or checksum is not the expected one;
+// leftovers from earlier laps around the ring can never be mistaken for live records.
+public class OrderJournal implements AutoCloseable {
+    private static final int MAGIC = 0x4F414B4A; // "OAKJ"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int RECORD_HEADER_SIZE = 16;
+    private static final int WRAP = -1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+
+    // RING STATE BLOCK - guarded by this
+    private long tailSeq, headSeq;
+    private int tailOffset, headOffset;
+    private final TreeMap<Long, Integer> live = new TreeMap<>(); // seq -> offset of every unapplied record
+
+    // OPEN - map the journal file, creating it if needed; call recover() before appending
+    public OrderJournal(Path file, int capacity) throws IOException {
+        this.capacity = capacity;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        if (buffer.getInt(0) != MAGIC) {
+            writeHeader(0, HEADER_SIZE);
+        } else if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported journal version " + buffer.getInt(4));
+        }
+        tailSeq = buffer.getLong(8);
+        tailOffset = buffer.getInt(16);
+        headSeq = tailSeq;
+        headOffset = tailOffset;
+    }
+
+    // RECOVER - read every intact record from the tail on; these orders were acknowledged but may not be in Derby yet
+    public synchronized List<JournalRecord> recover() throws IOException {
+        List<JournalRecord> records = new ArrayList<>();
+        live.clear();
+        long seq = tailSeq;
+        int offset = tailOffset;
+        int end = tailOffset;
+        while (true) {
+            if (offset + 4 > capacity || buffer.getInt(offset) == WRAP) {
+                if (offset == HEADER_SIZE) break;
+                offset = HEADER_SIZE;
+                continue;
+            }
+            int length = buffer.getInt(offset);
+            if (length <= 0 || offset + RECORD_HEADER_SIZE + length > capacity) break;
+            if (buffer.getLong(offset + 4) != seq) break;
+            byte[] payload = new byte[length];
+            buffer.get(offset + RECORD_HEADER_SIZE, payload);
+            if (buffer.getInt(offset + 12) != checksum(seq, payload)) break;
+            records.add(new JournalRecord(seq, decode(payload)));
+            live.put(seq, offset);
+            seq++;
+            offset += RECORD_HEADER_SIZE + length;
+            end = offset;
+        }
+        // the next append goes right after the last intact record, overwriting whatever stale bytes follow it
+        headSeq = seq;
+        headOffset = end;
+        return records;
+    }
+
+    // APPEND - write one order and force it to disk; once this returns the order survives a crash
+    // Blocks while the ring is full until applied records are released with markApplied().
+    public synchronized JournalRecord append(NewOrder order) throws IOException, InterruptedException {
+        byte[] payload = encode(order);
+        int size = RECORD_HEADER_SIZE + payload.length;
+        if (size > capacity - HEADER_SIZE - 4) throw new IOException("Order too large for journal");
+        int offset;
+        while ((offset = reserve(size)) < 0) {
+            wait();
+        }
+        long seq = headSeq;
+        buffer.putInt(offset, payload.length);
+        buffer.putLong(offset + 4, seq);
+        buffer.putInt(offset + 12, checksum(seq, payload));
+        buffer.put(offset + RECORD_HEADER_SIZE, payload);
+        buffer.force(offset, size);
+        live.put(seq, offset);
+        headSeq = seq + 1;
+        headOffset = offset + size;
+        return new JournalRecord(seq, order);
+    }
+
+    // RESERVE - offset where a record of this size can go, writing a wrap marker if it must start over; -1 when full
+    private int reserve(int size) {
+        boolean empty = live.isEmpty();
+        if (empty || headOffset > tailOffset) {
+            if (headOffset + size <= capacity) return headOffset;
+            // not enough room before the end of the file; wrap if the start is free
+            int wrapLimit = empty ? capacity : tailOffset;
+            if (HEADER_SIZE + size >= wrapLimit && !empty) return -1;
+            if (headOffset + 4 <= capacity) {
+                buffer.putInt(headOffset, WRAP);
+                buffer.force(headOffset, 4);
+            }
+            headOffset = HEADER_SIZE;
+            if (empty) {
+                // nothing live: move the tail along so recovery starts at the new position
+                writeHeader(headSeq, HEADER_SIZE);
+            }
+            return HEADER_SIZE;
+        }
+        return headOffset + size < tailOffset ? headOffset : -1;
+    }
+
+    // MARK APPLIED - release records once Derby has committed them; the tail moves up to the oldest record still unapplied
+    // (records may be applied out of order, since appenders hand them to the flusher after leaving the journal lock)
+    public synchronized void markApplied(List<JournalRecord> records) {
+        for (JournalRecord record : records) {
+            live.remove(record.seq);
+        }
+        if (live.isEmpty()) {
+            writeHeader(headSeq, headOffset);
+        } else {
+            Map.Entry<Long, Integer> oldest = live.firstEntry();
+            writeHeader(oldest.getKey(), oldest.getValue());
+        }
+        notifyAll();
+    }
+
+    // PENDING COUNT - records appended or recovered but not yet applied
+    public synchronized int pendingCount() {
+        return live.size();
+    }
+
+    private void writeHeader(long seq, int offset) {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putLong(8, seq);
+        buffer.putInt(16, offset);
+        buffer.force(0, HEADER_SIZE);
+        tailSeq = seq;
+        tailOffset = offset;
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // CODEC BLOCK
+    private static int checksum(long seq, byte[] payload) {
+        CRC32C crc = new CRC32C();
+        for (int i = 0; i < 8; i++) {
+            crc.update((int) (seq >>> (56 - 8 * i)));
+        }
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] encode(NewOrder order) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + order.lines.size() * 8);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(order.transactionId);
+        out.writeUTF(order.date);
+        out.writeDouble(order.totalPrice);
+        out.writeInt(order.lines.size());
+        for (OrderLine line : order.lines) {
+            out.writeInt(line.menuItemId);
+            out.writeInt(line.quantity);
+        }
+        // SNAPSHOT BLOCK - each line's price and name as sold; records written before these existed end above
+        for (OrderLine line : order.lines) {
+            out.writeDouble(line.unitPrice != null ? line.unitPrice : Double.NaN);
+            out.writeBoolean(line.name != null);
+            if (line.name != null) out.writeUTF(line.name);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static NewOrder decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        String transactionId = in.readUTF();
+        String date = in.readUTF();
+        double total = in.readDouble();
+        int count = in.readInt();
+        List<OrderLine> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            lines.add(new OrderLine(in.readInt(), in.readInt()));
+        }
+        if (in.available() > 0) {
+            for (OrderLine line : lines) {
+                double unitPrice = in.readDouble();
+                line.unitPrice = Double.isNaN(unitPrice) ? null : unitPrice;
+                line.name = in.readBoolean() ? in.readUTF() : null;
+            }
+        }
+        return new NewOrder(transactionId, date, total, lines);
+    }
+
+    // JournalRecord - an order together with its journal sequence number
+    public static class JournalRecord {
+        public final long seq;
+        public final NewOrder order;
+
+        JournalRecord(long seq, NewOrder order) {
+            this.seq = seq;
+            this.order = order;
+        }
+    }
+}
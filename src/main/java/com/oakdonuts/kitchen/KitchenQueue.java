@@ -0,0 +1,183 @@
+package com.oakdonuts.kitchen;
+
+import com.oakdonuts.database.DatabaseManager;
+import com.oakdonuts.models.NewOrder;
+import com.oakdonuts.models.Order;
+import com.oakdonuts.models.OrderLine;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// KitchenQueue - open orders for the kitchen, in the order they should be made
+// Workflow: pending -> preparing (claimed by the kitchen) -> ready (leaves the queue). Rushed orders come first,
+// then oldest first. The queue lives in memory and is lock-free: claiming, rushing and completing are skip-list
+// operations, so it stays O(log n) with hundreds of open orders. Status changes are written behind by a
+// StatusWriter, which coalesces them into batched transactions.
+public class KitchenQueue implements AutoCloseable {
+    public static final String PENDING = "pending";
+    public static final String PREPARING = "preparing";
+    public static final String READY = "ready";
+
+    // OPEN ORDER HOURS - how far back startup looks for open orders (-Doak.kitchenHours). Older ones are left alone:
+    // before the kitchen queue nothing moved orders past "pending", so an upgraded database has a whole history of them.
+    private static final int OPEN_ORDER_HOURS = Integer.getInteger("oak.kitchenHours", 12);
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final Comparator<Ticket> PRIORITY = Comparator.comparing((Ticket ticket) -> !ticket.rushed)
+            .thenComparing(ticket -> ticket.placedAt)
+            .thenComparing(ticket -> ticket.transactionId);
+
+    private final DatabaseManager db;
+    private final StatusWriter writer;
+    private final ConcurrentHashMap<String, Ticket> tickets = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Ticket> waiting = new ConcurrentSkipListSet<>(PRIORITY);
+    private final ConcurrentSkipListSet<Ticket> inProgress = new ConcurrentSkipListSet<>(PRIORITY);
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+    private final Runnable unsubscribe;
+
+    // CONSTRUCTOR - follow newly placed orders, then load the open ones placed in the last OPEN_ORDER_HOURS
+    // Subscribing first means an order placed during loading is picked up by one path or the other; both add idempotently.
+    public KitchenQueue(DatabaseManager db) {
+        this.db = db;
+        this.writer = new StatusWriter(db);
+        unsubscribe = db.getOrderPlacedEvents().subscribe(this::ordersPlaced);
+        db.addOrderChangeListener(this::orderChanged);
+        for (Order order : db.getOrdersByStatus(LocalDateTime.now().minusHours(OPEN_ORDER_HOURS), PENDING, PREPARING)) {
+            add(new Ticket(order.transactionId, order.date, OrderLine.fromItems(order.items), false), order.status);
+        }
+    }
+
+    // SNAPSHOT BLOCK - each in priority order
+    public List<Ticket> getInProgress() {
+        return new ArrayList<>(inProgress);
+    }
+
+    public List<Ticket> getWaiting() {
+        return new ArrayList<>(waiting);
+    }
+
+    // CLAIM NEXT - take the highest-priority waiting order; null if none are waiting
+    public Ticket claimNext() {
+        Ticket ticket = waiting.pollFirst();
+        if (ticket == null) return null;
+        startPreparing(ticket);
+        return ticket;
+    }
+
+    // CLAIM - take a specific waiting order; false if it is not waiting (another station may have claimed it)
+    public boolean claim(String transactionId) {
+        Ticket ticket = tickets.get(transactionId);
+        if (ticket == null || !waiting.remove(ticket)) return false;
+        startPreparing(ticket);
+        return true;
+    }
+
+    // COMPLETE - an order being prepared is ready; it leaves the queue
+    public boolean complete(String transactionId) {
+        Ticket ticket = tickets.get(transactionId);
+        if (ticket == null || !inProgress.remove(ticket)) return false;
+        tickets.remove(transactionId, ticket);
+        writer.write(transactionId, READY);
+        fireChanged();
+        return true;
+    }
+
+    // RUSH - move a waiting order to the front; tickets are immutable, so a rushed copy replaces it
+    public boolean rush(String transactionId) {
+        Ticket ticket = tickets.get(transactionId);
+        if (ticket == null || ticket.rushed || !waiting.remove(ticket)) return false;
+        Ticket rushed = new Ticket(ticket.transactionId, ticket.date, ticket.lines, true);
+        tickets.put(transactionId, rushed);
+        waiting.add(rushed);
+        fireChanged();
+        return true;
+    }
+
+    // CHANGE LISTENERS - called on any thread after the queue changes
+    public void addChangeListener(Runnable listener) {
+        changeListeners.add(listener);
+    }
+
+    // CLOSE - stop following orders and write out any status changes still queued
+    public void close() {
+        unsubscribe.run();
+        writer.close();
+    }
+
+    // QUEUE HELPERS BLOCK
+    private void startPreparing(Ticket ticket) {
+        inProgress.add(ticket);
+        writer.write(ticket.transactionId, PREPARING);
+        fireChanged();
+    }
+
+    private void add(Ticket ticket, String status) {
+        if (tickets.putIfAbsent(ticket.transactionId, ticket) != null) return;
+        (PREPARING.equals(status) ? inProgress : waiting).add(ticket);
+    }
+
+    private void ordersPlaced(List<NewOrder> orders) {
+        boolean added = false;
+        for (NewOrder order : orders) {
+            if (!PENDING.equals(order.status) && !PREPARING.equals(order.status)) continue;
+            add(new Ticket(order.transactionId, order.date, order.lines, false), order.status);
+            added = true;
+        }
+        if (added) fireChanged();
+    }
+
+    // ORDER CHANGED - another part of the app changed or deleted an order; if the kitchen holds it, re-read it on
+    // the writer thread. The queue's own batched writes are skipped: they only confirm what the queue already shows.
+    private void orderChanged(String transactionId) {
+        if (writer.isWriterThread() || !tickets.containsKey(transactionId)) return;
+        writer.execute(() -> reload(transactionId));
+    }
+
+    // RELOAD - move or drop a ticket to match the order's status in the database
+    private void reload(String transactionId) {
+        Order order = db.getOrder(transactionId);
+        String status = order != null ? order.status : null;
+        Ticket ticket = tickets.get(transactionId);
+        if (ticket == null) return;
+        if (PENDING.equals(status) && inProgress.remove(ticket)) {
+            waiting.add(ticket);
+        } else if (PREPARING.equals(status) && waiting.remove(ticket)) {
+            inProgress.add(ticket);
+        } else if (!PENDING.equals(status) && !PREPARING.equals(status)) {
+            waiting.remove(ticket);
+            inProgress.remove(ticket);
+            tickets.remove(transactionId, ticket);
+        } else {
+            return;
+        }
+        fireChanged();
+    }
+
+    private void fireChanged() {
+        for (Runnable listener : changeListeners) {
+            listener.run();
+        }
+    }
+
+    // Ticket - one open order as the kitchen sees it
+    public static class Ticket {
+        public final String transactionId;
+        public final String date;
+        public final LocalDateTime placedAt;
+        public final List<OrderLine> lines;
+        public final boolean rushed;
+
+        Ticket(String transactionId, String date, List<OrderLine> lines, boolean rushed) {
+            this.transactionId = transactionId;
+            this.date = date;
+            this.placedAt = LocalDateTime.parse(date, DATE_FORMAT);
+            this.lines = lines;
+            this.rushed = rushed;
+        }
+    }
+}
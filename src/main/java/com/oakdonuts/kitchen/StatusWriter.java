@@ -0,0 +1,108 @@
+package com.oakdonuts.kitchen;
+
+import com.oakdonuts.database.DatabaseManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// StatusWriter - writes kitchen status changes behind the queue, coalesced into batched transactions
+// Only the latest status of each order is kept until it is written, so an order claimed and completed between two
+// flushes costs one row update. Whatever queues up while a batch is being written goes out in the next one.
+// The same thread also runs the queue's background tasks, so they never block the caller (usually the EDT).
+class StatusWriter implements AutoCloseable {
+    private static final int MAX_BATCH = 256;
+    private static final long RETRY_DELAY_MS = 1000;
+
+    private final DatabaseManager db;
+    private final ConcurrentHashMap<String, String> latest = new ConcurrentHashMap<>();
+    private final BlockingQueue<Object> work = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    StatusWriter(DatabaseManager db) {
+        this.db = db;
+        thread = Thread.ofPlatform().name("oak-kitchen-writer").daemon().start(this::writeLoop);
+    }
+
+    // WRITE - queue a status change; replaces any change for the same order not written yet
+    void write(String transactionId, String status) {
+        if (latest.put(transactionId, status) == null) {
+            work.add(transactionId);
+        } else {
+            db.getMetrics().increment("kitchen.coalescedWrites");
+        }
+    }
+
+    // EXECUTE - run a task on the writer thread after the changes queued before it
+    void execute(Runnable task) {
+        work.add(task);
+    }
+
+    boolean isWriterThread() {
+        return Thread.currentThread() == thread;
+    }
+
+    // WRITE LOOP - drain what has queued up, write the statuses in one transaction, then run any tasks
+    private void writeLoop() {
+        List<Object> batch = new ArrayList<>();
+        while (running || !work.isEmpty()) {
+            try {
+                Object first = work.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                work.drainTo(batch, MAX_BATCH - 1);
+                Map<String, String> statuses = new HashMap<>();
+                List<Runnable> tasks = new ArrayList<>();
+                for (Object item : batch) {
+                    if (item instanceof Runnable) {
+                        tasks.add((Runnable) item);
+                    } else {
+                        // removed before writing: a change arriving meanwhile queues the ID again for the next batch
+                        String transactionId = (String) item;
+                        String status = latest.remove(transactionId);
+                        if (status != null) statuses.put(transactionId, status);
+                    }
+                }
+                batch.clear();
+                if (!statuses.isEmpty() && db.updateOrderStatuses(statuses) < 0) {
+                    // keep the changes and retry; on shutdown they are lost, and the orders reopen as they were last saved
+                    requeue(statuses);
+                    if (!running) return;
+                    Thread.sleep(RETRY_DELAY_MS);
+                }
+                for (Runnable task : tasks) {
+                    task.run();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // REQUEUE - put back a failed batch, unless a newer status for the order has been queued since
+    private void requeue(Map<String, String> statuses) {
+        for (Map.Entry<String, String> entry : statuses.entrySet()) {
+            if (latest.putIfAbsent(entry.getKey(), entry.getValue()) == null) {
+                work.add(entry.getKey());
+            }
+        }
+    }
+
+    // CLOSE - write out what is queued, giving up after 10 seconds
+    public void close() {
+        running = false;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
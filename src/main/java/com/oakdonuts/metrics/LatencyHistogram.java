@@ -0,0 +1,96 @@
+package com.oakdonuts.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// LatencyHistogram - lock-free log-linear histogram of nanosecond durations
+// Each power of two is split into 32 equal buckets, so any reported percentile is within about 3% of the true
+// value, from 1 ns up to centuries, in a fixed 15 KB of counters. Recording is a couple of atomic adds.
+public class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    // RECORD - add one duration; negative values count as zero
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        total.increment();
+        sum.add(value);
+        if (value > max.get()) max.accumulateAndGet(value, Math::max);
+    }
+
+    // SNAPSHOT - copy of the counters; concurrent records may land in either this snapshot or the next
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new Snapshot(copy, total.sum(), sum.sum(), max.get());
+    }
+
+    // BUCKET MATH BLOCK - values below 32 get a bucket each; above that, the top 5 bits after the leading one pick it
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    // HIGHEST VALUE IN BUCKET - what a percentile falling in this bucket reports
+    static long highestValueIn(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    // Snapshot - immutable counts at one moment; subtract an earlier snapshot to get the interval between them
+    public static class Snapshot {
+        private final long[] counts;
+        public final long count;
+        public final long sumNanos;
+        public final long maxNanos;
+
+        private Snapshot(long[] counts, long count, long sumNanos, long maxNanos) {
+            this.counts = counts;
+            this.count = count;
+            this.sumNanos = sumNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        // PERCENTILE - smallest recorded value (to bucket precision) that p percent of the samples do not exceed
+        public long percentile(double p) {
+            long seen = 0;
+            long total = 0;
+            for (long c : counts) total += c;
+            if (total == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(p / 100.0 * total));
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(highestValueIn(i), maxNanos);
+            }
+            return maxNanos;
+        }
+
+        // MEAN - average duration, 0 when empty
+        public long mean() {
+            return count == 0 ? 0 : sumNanos / count;
+        }
+
+        // MINUS - samples recorded after the earlier snapshot; the max is the overall max and may predate it
+        public Snapshot minus(Snapshot earlier) {
+            long[] diff = new long[counts.length];
+            for (int i = 0; i < counts.length; i++) {
+                diff[i] = counts[i] - earlier.counts[i];
+            }
+            return new Snapshot(diff, count - earlier.count, sumNanos - earlier.sumNanos, maxNanos);
+        }
+    }
+}
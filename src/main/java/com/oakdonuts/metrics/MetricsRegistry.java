@@ -0,0 +1,84 @@
+package com.oakdonuts.metrics;
+
+import com.oakdonuts.util.Json;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// MetricsRegistry - named timers and counters, created on first use and safe to update from any thread
+// Names are "<area>.<operation>", e.g. db.getOrders or ui.checkout.
+public class MetricsRegistry {
+    private final ConcurrentHashMap<String, OperationTimer> timers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    // TIMER - the timer for a name, created on first use
+    public OperationTimer timer(String name) {
+        OperationTimer timer = timers.get(name);
+        return timer != null ? timer : timers.computeIfAbsent(name, OperationTimer::new);
+    }
+
+    // START - begin timing one call of the named operation
+    public OperationTimer.Timing start(String name) {
+        return timer(name).start();
+    }
+
+    // INCREMENT - add one to the named counter
+    public void increment(String name) {
+        LongAdder counter = counters.get(name);
+        (counter != null ? counter : counters.computeIfAbsent(name, key -> new LongAdder())).increment();
+    }
+
+    // SNAPSHOT BLOCK - sorted by name
+    public List<OperationTimer.Snapshot> snapshotTimers() {
+        List<OperationTimer.Snapshot> snapshots = new ArrayList<>();
+        for (OperationTimer timer : new TreeMap<>(timers).values()) {
+            snapshots.add(timer.snapshot());
+        }
+        return snapshots;
+    }
+
+    public Map<String, Long> snapshotCounters() {
+        Map<String, Long> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.sum()));
+        return values;
+    }
+
+    // DUMP - write every timer (count, errors, mean/p50/p90/p99/p999/max in ms) and counter to a JSON file
+    public void dump(Path file) throws IOException {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("capturedAt", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        Map<String, Object> timerJson = new LinkedHashMap<>();
+        for (OperationTimer.Snapshot timer : snapshotTimers()) {
+            LatencyHistogram.Snapshot latency = timer.latency;
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("count", latency.count);
+            stats.put("errors", timer.errors);
+            stats.put("meanMs", millis(latency.mean()));
+            stats.put("p50Ms", millis(latency.percentile(50)));
+            stats.put("p90Ms", millis(latency.percentile(90)));
+            stats.put("p99Ms", millis(latency.percentile(99)));
+            stats.put("p999Ms", millis(latency.percentile(99.9)));
+            stats.put("maxMs", millis(latency.maxNanos));
+            timerJson.put(timer.name, stats);
+        }
+        json.put("timers", timerJson);
+        json.put("counters", snapshotCounters());
+        Files.writeString(file, Json.write(json) + "\n", StandardCharsets.UTF_8);
+    }
+
+    // MILLIS - nanoseconds as milliseconds rounded to microseconds
+    public static double millis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+}
@@ -0,0 +1,26 @@
+package com.oakdonuts.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+// OperationEvent - JFR event for timed database calls and UI actions, so slow calls line up with GC, lock and
+// I/O events in a flight recording. Only calls of 1 ms or more are written unless a recording lowers the
+// threshold; the histograms in MetricsRegistry still see every call.
+@Name("com.oakdonuts.Operation")
+@Label("Oak Donuts Operation")
+@Category("Oak Donuts")
+@Description("A timed database call or UI action")
+@StackTrace(false)
+@Threshold("1 ms")
+class OperationEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Failed")
+    boolean failed;
+}
@@ -0,0 +1,81 @@
+package com.oakdonuts.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// OperationTimer - latency histogram, call count and error count for one named operation
+public class OperationTimer {
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+
+    OperationTimer(String name) {
+        this.name = name;
+    }
+
+    // START - begin timing one call; stop() the result when the call ends, after fail() if it failed
+    public Timing start() {
+        return new Timing(this);
+    }
+
+    // RECORD - add a call whose duration was measured elsewhere
+    public void record(long nanos, boolean failed) {
+        latency.record(nanos);
+        if (failed) errors.increment();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // SNAPSHOT - current counters
+    public Snapshot snapshot() {
+        return new Snapshot(name, latency.snapshot(), errors.sum());
+    }
+
+    // Snapshot - one timer's counters at a moment
+    public static class Snapshot {
+        public final String name;
+        public final LatencyHistogram.Snapshot latency;
+        public final long errors;
+
+        Snapshot(String name, LatencyHistogram.Snapshot latency, long errors) {
+            this.name = name;
+            this.latency = latency;
+            this.errors = errors;
+        }
+    }
+
+    // Timing - one call in progress, also reported as a JFR OperationEvent
+    public static class Timing {
+        private final OperationTimer timer;
+        private final long start;
+        private final OperationEvent event;
+        private boolean failed;
+        private boolean stopped;
+
+        private Timing(OperationTimer timer) {
+            this.timer = timer;
+            this.event = new OperationEvent();
+            this.event.begin();
+            this.start = System.nanoTime();
+        }
+
+        // FAIL - mark the call as failed; it still needs stop()
+        public void fail() {
+            failed = true;
+        }
+
+        // STOP - record the call; later calls are ignored, so it is safe in a finally block after an earlier stop
+        public void stop() {
+            if (stopped) return;
+            stopped = true;
+            timer.record(System.nanoTime() - start, failed);
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = timer.name;
+                event.failed = failed;
+                event.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.oakdonuts.models;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Cart - shopping cart keyed by menu item, one line per item with a quantity and a running total in cents
+// Adding an item or changing a quantity is O(1); removing a whole line shifts the rows below it.
+public class Cart {
+    private final List<Line> lines = new ArrayList<>();
+    private final Map<Integer, Line> linesById = new HashMap<>();
+    private final List<Listener> listeners = new ArrayList<>();
+    private long totalCents;
+    private int itemCount;
+
+    // ADD - one more of this item; a new line is appended the first time it is added
+    public void add(MenuItem item) {
+        Line line = linesById.get(item.id);
+        if (line == null) {
+            line = new Line(item, lines.size());
+            lines.add(line);
+            linesById.put(item.id, line);
+            line.quantity = 1;
+            applyTotals(line.unitCents, 1);
+            for (Listener listener : listeners) listener.lineInserted(line.row);
+        } else {
+            line.quantity++;
+            applyTotals(line.unitCents, 1);
+            for (Listener listener : listeners) listener.lineUpdated(line.row);
+        }
+    }
+
+    // REMOVE ONE - one fewer of the item on this row; the line goes away when its quantity reaches zero
+    public void removeOne(int row) {
+        Line line = lines.get(row);
+        if (line.quantity > 1) {
+            line.quantity--;
+            applyTotals(line.unitCents, -1);
+            for (Listener listener : listeners) listener.lineUpdated(row);
+        } else {
+            removeLine(row);
+        }
+    }
+
+    // REMOVE LINE - drop the whole line on this row
+    public void removeLine(int row) {
+        Line line = lines.remove(row);
+        linesById.remove(line.item.id);
+        for (int i = row; i < lines.size(); i++) {
+            lines.get(i).row = i;
+        }
+        applyTotals(line.unitCents, -line.quantity);
+        for (Listener listener : listeners) listener.lineRemoved(row);
+    }
+
+    // CLEAR - empty the cart
+    public void clear() {
+        if (lines.isEmpty()) return;
+        int lastRow = lines.size() - 1;
+        lines.clear();
+        linesById.clear();
+        totalCents = 0;
+        itemCount = 0;
+        for (Listener listener : listeners) listener.linesRemoved(0, lastRow);
+    }
+
+    // ADD ALL - put lines back (e.g. after a failed checkout), merging with anything added since
+    public void addAll(List<Line> saved) {
+        for (Line line : saved) {
+            for (int i = 0; i < line.quantity; i++) {
+                add(line.item);
+            }
+        }
+    }
+
+    private void applyTotals(long unitCents, int quantityDelta) {
+        totalCents += unitCents * quantityDelta;
+        itemCount += quantityDelta;
+    }
+
+    // READ ACCESS BLOCK
+    public Line getLine(int row) {
+        return lines.get(row);
+    }
+
+    public int getLineCount() {
+        return lines.size();
+    }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public long getTotalCents() {
+        return totalCents;
+    }
+
+    public boolean isEmpty() {
+        return lines.isEmpty();
+    }
+
+    // SNAPSHOT - copy of the current lines, unaffected by later changes
+    public List<Line> snapshot() {
+        List<Line> copy = new ArrayList<>(lines.size());
+        for (Line line : lines) {
+            Line saved = new Line(line.item, line.row);
+            saved.quantity = line.quantity;
+            copy.add(saved);
+        }
+        return copy;
+    }
+
+    // TO ORDER LINES - (menu item, quantity) rows for checkout, with the name and the price the customer was charged
+    public static List<OrderLine> toOrderLines(List<Line> lines) {
+        List<OrderLine> orderLines = new ArrayList<>(lines.size());
+        for (Line line : lines) {
+            orderLines.add(new OrderLine(line.item.id, line.quantity, line.unitCents / 100.0, line.item.name));
+        }
+        return orderLines;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    // Line - one menu item in the cart
+    public static class Line {
+        public final MenuItem item;
+        public final long unitCents;
+        public int quantity;
+        int row;
+
+        Line(MenuItem item, int row) {
+            this.item = item;
+            this.unitCents = Math.round(item.price * 100);
+            this.row = row;
+        }
+
+        public long getLineCents() {
+            return unitCents * quantity;
+        }
+    }
+
+    // Listener - row-level change notifications, so views only redraw what changed
+    public interface Listener {
+        void lineInserted(int row);
+
+        void lineUpdated(int row);
+
+        void lineRemoved(int row);
+
+        void linesRemoved(int firstRow, int lastRow);
+    }
+}
@@ -0,0 +1,20 @@
+package com.oakdonuts.models;
+
+// CategorySales - donuts sold and revenue for one menu category over a reporting window
+public class CategorySales {
+    public String category;
+    public int quantity;
+    public double revenue;
+
+    // FULL CONSTRUCTOR - creates figures for a category
+    public CategorySales(String category, int quantity, double revenue) {
+        this.category = category;
+        this.quantity = quantity;
+        this.revenue = revenue;
+    }
+
+    // TOSTRING - display category, quantity and revenue
+    public String toString() {
+        return category + " x" + quantity + " | $" + String.format("%.2f", revenue);
+    }
+}
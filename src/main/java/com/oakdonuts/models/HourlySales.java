@@ -0,0 +1,20 @@
+package com.oakdonuts.models;
+
+// HourlySales - orders and revenue for one hour, excluding cancelled orders
+public class HourlySales {
+    public String hour;
+    public int orderCount;
+    public double revenue;
+
+    // FULL CONSTRUCTOR - creates figures for the hour starting at the given "yyyy-MM-dd HH:mm:ss" time
+    public HourlySales(String hour, int orderCount, double revenue) {
+        this.hour = hour;
+        this.orderCount = orderCount;
+        this.revenue = revenue;
+    }
+
+    // TOSTRING - display hour, order count and revenue
+    public String toString() {
+        return hour + " | Orders: " + orderCount + " | $" + String.format("%.2f", revenue);
+    }
+}
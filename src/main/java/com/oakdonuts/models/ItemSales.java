@@ -0,0 +1,26 @@
+package com.oakdonuts.models;
+
+// ItemSales - donuts sold and revenue for one menu item, either in one hour or over a whole reporting window
+public class ItemSales {
+    public String hour;
+    public int menuItemId;
+    public String name;
+    public String category;
+    public int quantity;
+    public double revenue;
+
+    // FULL CONSTRUCTOR - hour is null when the figures cover the whole window
+    public ItemSales(String hour, int menuItemId, String name, String category, int quantity, double revenue) {
+        this.hour = hour;
+        this.menuItemId = menuItemId;
+        this.name = name;
+        this.category = category;
+        this.quantity = quantity;
+        this.revenue = revenue;
+    }
+
+    // TOSTRING - display item, quantity and revenue
+    public String toString() {
+        return (hour != null ? hour + " | " : "") + name + " x" + quantity + " | $" + String.format("%.2f", revenue);
+    }
+}
@@ -0,0 +1,54 @@
+package com.oakdonuts.models;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// NewOrder - an order being placed: header fields plus its (menu item, quantity) lines
+public class NewOrder {
+    public String transactionId;
+    public String date;
+    public double totalPrice;
+    public List<OrderLine> lines;
+    public String status = "pending";
+
+    // FULL CONSTRUCTOR - creates new order with all details
+    public NewOrder(String transactionId, String date, double totalPrice, List<OrderLine> lines) {
+        this.transactionId = transactionId;
+        this.date = date;
+        this.totalPrice = totalPrice;
+        this.lines = lines;
+    }
+
+    // STATUS CONSTRUCTOR - an order that already has a status, e.g. history imported from another store
+    public NewOrder(String transactionId, String date, double totalPrice, List<OrderLine> lines, String status) {
+        this(transactionId, date, totalPrice, lines);
+        this.status = status;
+    }
+
+    // TO JSON - the order as one line of DataTransfer's orders NDJSON, ready for util.Json.write
+    public Map<String, Object> toJson() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("transactionId", transactionId);
+        json.put("date", date);
+        json.put("total", totalPrice);
+        json.put("status", status);
+        List<Object> items = new ArrayList<>();
+        for (OrderLine line : lines) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("menuItemId", line.menuItemId);
+            item.put("quantity", line.quantity);
+            item.put("unitPrice", line.unitPrice);
+            item.put("name", line.name);
+            items.add(item);
+        }
+        json.put("items", items);
+        return json;
+    }
+
+    // TOSTRING - display ID, line count and total
+    public String toString() {
+        return "ID: " + transactionId + " | Date: " + date + " | Lines: " + lines.size() + " | $" + String.format("%.2f", totalPrice);
+    }
+}
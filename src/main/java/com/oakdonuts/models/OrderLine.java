@@ -0,0 +1,52 @@
+package com.oakdonuts.models;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// OrderLine - one menu item and how many of it were ordered, with the name and price it was sold under
+public class OrderLine {
+    public int menuItemId;
+    public int quantity;
+    public Double unitPrice; // price each was sold at; null means the current menu price
+    public String name; // item name when sold; null means the current menu name
+
+    // FULL CONSTRUCTOR - creates a line for a menu item and quantity
+    public OrderLine(int menuItemId, int quantity) {
+        this.menuItemId = menuItemId;
+        this.quantity = quantity;
+    }
+
+    // PRICED CONSTRUCTOR - creates a line that keeps the unit price it was sold at
+    public OrderLine(int menuItemId, int quantity, Double unitPrice) {
+        this(menuItemId, quantity);
+        this.unitPrice = unitPrice;
+    }
+
+    // SNAPSHOT CONSTRUCTOR - creates a line that keeps the price and item name it was sold at
+    public OrderLine(int menuItemId, int quantity, Double unitPrice, String name) {
+        this(menuItemId, quantity, unitPrice);
+        this.name = name;
+    }
+
+    // COLLAPSE ITEMS - turn one-entry-per-donut cart contents into one line per menu item, keeping first-seen order
+    // Each line keeps the name and price of the item as passed in.
+    public static List<OrderLine> fromItems(List<MenuItem> items) {
+        Map<Integer, OrderLine> lines = new LinkedHashMap<>();
+        for (MenuItem item : items) {
+            OrderLine line = lines.get(item.id);
+            if (line == null) {
+                lines.put(item.id, new OrderLine(item.id, 1, item.price, item.name));
+            } else {
+                line.quantity++;
+            }
+        }
+        return new ArrayList<>(lines.values());
+    }
+
+    // TOSTRING - display quantity and menu item ID
+    public String toString() {
+        return quantity + " x #" + menuItemId;
+    }
+}
@@ -0,0 +1,24 @@
+package com.oakdonuts.models;
+
+// OrderSummary - one row of the order history list, with an item count instead of the full item list
+public class OrderSummary {
+    public String transactionId;
+    public String date;
+    public int itemCount;
+    public double totalPrice;
+    public String status;
+
+    // FULL CONSTRUCTOR - creates summary with all list columns
+    public OrderSummary(String transactionId, String date, int itemCount, double totalPrice, String status) {
+        this.transactionId = transactionId;
+        this.date = date;
+        this.itemCount = itemCount;
+        this.totalPrice = totalPrice;
+        this.status = status;
+    }
+
+    // TOSTRING - display summary with ID, date, item count, and total price
+    public String toString() {
+        return "ID: " + transactionId + " | Date: " + date + " | Items: " + itemCount + " | $" + String.format("%.2f", totalPrice);
+    }
+}
@@ -0,0 +1,260 @@
+package com.oakdonuts.server;
+
+import com.oakdonuts.database.DatabaseManager;
+import com.oakdonuts.journal.JournaledOrderWriter;
+import com.oakdonuts.models.MenuItem;
+import com.oakdonuts.models.Order;
+import com.oakdonuts.models.OrderLine;
+import com.oakdonuts.util.Json;
+import com.oakdonuts.util.TransactionIds;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+// OrderServer - headless HTTP endpoint so counters and kiosks can share one store database
+//   GET  /menu                      menu items
+//   POST /orders                    {"items":[{"menuItemId":1,"quantity":2}]} -> 201 {"transactionId":..,"total":..}
+//   GET  /orders/{id}               one order with its items
+//   PUT  /orders/{id}/status        {"status":"ready"}
+// Requests are handled on virtual threads, but their Derby and journal calls go through a platform-thread pool the size
+// of the connection pool: Derby waits for row locks, and the journal for ring space and disk, inside synchronized
+// blocks, which pins virtual-thread carriers.
+public class OrderServer {
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+
+    private final DatabaseManager db;
+    private final JournaledOrderWriter orderWriter;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ExecutorService dbExecutor;
+    private final Semaphore admission;
+    private final TransactionIds transactionIds = new TransactionIds("OD", TransactionIds.defaultTerminal());
+
+    // CONSTRUCTOR - listen on bindAddress ("localhost" for this machine only, "0.0.0.0" for every interface);
+    // at most maxInFlight requests are served at once, the rest get 503
+    public OrderServer(DatabaseManager db, JournaledOrderWriter orderWriter, String bindAddress, int port, int maxInFlight) throws IOException {
+        this.db = db;
+        this.orderWriter = orderWriter;
+        this.admission = new Semaphore(maxInFlight);
+        this.dbExecutor = Executors.newFixedThreadPool(db.getPoolSize(), Thread.ofPlatform().name("oak-http-db-", 0).daemon().factory());
+        this.server = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+        server.setExecutor(executor);
+        server.createContext("/menu", exchange -> handle(exchange, this::handleMenu));
+        server.createContext("/orders", exchange -> handle(exchange, this::handleOrders));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // STOP - stop accepting requests and give in-flight ones a moment to finish
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+        dbExecutor.shutdown();
+    }
+
+    // ON DATABASE - run a Derby or journal call on the database pool and wait for it; the waiting virtual thread pins
+    // nothing
+    private <T> T onDatabase(Callable<T> call) throws IOException {
+        try {
+            return dbExecutor.submit(call).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the database", e);
+        }
+    }
+
+    // HANDLE - admission control and error mapping shared by every endpoint
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        if (!admission.tryAcquire()) {
+            exchange.getResponseHeaders().add("Retry-After", "1");
+            send(exchange, 503, error("Server busy"));
+            return;
+        }
+        try {
+            handler.handle(exchange);
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, error("Bad request: " + e.getMessage()));
+        } catch (Exception e) {
+            e.printStackTrace();
+            send(exchange, 500, error("Internal error"));
+        } finally {
+            admission.release();
+            exchange.close();
+        }
+    }
+
+    // MENU ENDPOINT - served from the in-memory catalog
+    private void handleMenu(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            send(exchange, 405, error("Method not allowed"));
+            return;
+        }
+        List<Object> items = new ArrayList<>();
+        for (MenuItem item : db.getMenuCatalog().getItems()) {
+            items.add(toJson(item));
+        }
+        send(exchange, 200, items);
+    }
+
+    // ORDERS ENDPOINT - placement, lookup and status updates
+    private void handleOrders(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String[] parts = exchange.getRequestURI().getPath().split("/");
+        // parts: ["", "orders"] or ["", "orders", id] or ["", "orders", id, "status"]
+        if (parts.length == 2 && method.equals("POST")) {
+            placeOrder(exchange);
+        } else if (parts.length == 3 && method.equals("GET")) {
+            Order order = onDatabase(() -> db.getOrder(parts[2]));
+            if (order == null) send(exchange, 404, error("No such order"));
+            else send(exchange, 200, toJson(order));
+        } else if (parts.length == 4 && parts[3].equals("status") && (method.equals("PUT") || method.equals("POST"))) {
+            Map<?, ?> body = object(readBody(exchange), "body");
+            String status = text(body.get("status"), "status");
+            if (status.isEmpty() || status.length() > 20) throw new IllegalArgumentException("status must be 1-20 characters");
+            if (onDatabase(() -> db.updateOrderStatus(parts[2], status))) send(exchange, 204, null);
+            else send(exchange, 404, error("No such order"));
+        } else {
+            send(exchange, 404, error("Not found"));
+        }
+    }
+
+    // PLACE ORDER - prices come from the catalog, never from the client, and are totalled in cents as the cart does;
+    // acknowledged once journaled, so a GET for the new order can briefly return 404 until the background flush
+    // reaches Derby
+    private void placeOrder(HttpExchange exchange) throws IOException {
+        Map<?, ?> body = object(readBody(exchange), "body");
+        Object items = body.get("items");
+        if (!(items instanceof List) || ((List<?>) items).isEmpty()) throw new IllegalArgumentException("items must be a non-empty array");
+        List<?> requested = (List<?>) items;
+
+        List<OrderLine> lines = new ArrayList<>();
+        long totalCents = 0;
+        for (Object entry : requested) {
+            Map<?, ?> line = object(entry, "each item");
+            int menuItemId = wholeNumber(line.get("menuItemId"), "menuItemId");
+            Object quantityValue = line.get("quantity");
+            int quantity = quantityValue == null ? 1 : wholeNumber(quantityValue, "quantity");
+            MenuItem item = db.getMenuCatalog().getItem(menuItemId);
+            if (item == null) throw new IllegalArgumentException("unknown menu item " + menuItemId);
+            if (quantity < 1) throw new IllegalArgumentException("quantity must be at least 1");
+            long unitCents = Math.round(item.price * 100);
+            lines.add(new OrderLine(menuItemId, quantity, unitCents / 100.0, item.name));
+            totalCents += unitCents * quantity;
+        }
+        double total = totalCents / 100.0;
+
+        String transactionId = transactionIds.next();
+        String date = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+        if (!onDatabase(() -> orderWriter.placeOrder(transactionId, date, total, lines))) {
+            send(exchange, 500, error("Order was not saved"));
+            return;
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("transactionId", transactionId);
+        result.put("date", date);
+        result.put("total", total);
+        send(exchange, 201, result);
+    }
+
+    // JSON MAPPING BLOCK
+    private static Map<String, Object> toJson(MenuItem item) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", item.id);
+        json.put("name", item.name);
+        json.put("description", item.description);
+        json.put("price", item.price);
+        json.put("category", item.category);
+        return json;
+    }
+
+    private static Map<String, Object> toJson(Order order) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("transactionId", order.transactionId);
+        json.put("date", order.date);
+        json.put("status", order.status);
+        json.put("total", order.totalPrice);
+        List<Object> items = new ArrayList<>();
+        for (OrderLine line : OrderLine.fromItems(order.items)) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("menuItemId", line.menuItemId);
+            item.put("quantity", line.quantity);
+            items.add(item);
+        }
+        json.put("items", items);
+        return json;
+    }
+
+    private static Map<String, Object> error(String message) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("error", message);
+        return json;
+    }
+
+    // REQUEST FIELDS BLOCK - type checks on parsed JSON, so a bad request gets a message about the field rather than
+    // about Java classes
+    private static Map<?, ?> object(Object value, String name) {
+        if (value instanceof Map) return (Map<?, ?>) value;
+        throw new IllegalArgumentException(name + " must be an object");
+    }
+
+    private static String text(Object value, String name) {
+        if (value instanceof String) return (String) value;
+        throw new IllegalArgumentException(name + " must be a string");
+    }
+
+    private static int wholeNumber(Object value, String name) {
+        if (value instanceof Number) {
+            double d = ((Number) value).doubleValue();
+            if (d == Math.rint(d) && d >= Integer.MIN_VALUE && d <= Integer.MAX_VALUE) return (int) d;
+        }
+        throw new IllegalArgumentException(name + " must be a whole number");
+    }
+
+    // IO HELPERS BLOCK
+    private static Object readBody(HttpExchange exchange) throws IOException {
+        byte[] body = exchange.getRequestBody().readNBytes(MAX_BODY_BYTES + 1);
+        if (body.length > MAX_BODY_BYTES) throw new IllegalArgumentException("body too large");
+        return Json.parse(new String(body, StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, Object body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = Json.write(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private interface Handler {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+}
@@ -0,0 +1,49 @@
+package com.oakdonuts.tools;
+
+import com.oakdonuts.archive.OrderArchive;
+import com.oakdonuts.database.DatabaseManager;
+
+import java.nio.file.Paths;
+import java.time.LocalDate;
+
+// ArchiveOrders - moves orders older than N days out of the database into the monthly order archive
+// Usage: java com.oakdonuts.tools.ArchiveOrders [--days N] [--db URL] [--archive DIR]
+// The app runs the same job in the background at startup (see MainFrame, -Doak.archiveAfterDays); this runs it on
+// demand, e.g. against a copy of the database. Safe to repeat or interrupt: a month is only deleted from the
+// database after its segment is written, and re-archiving an order replaces the archived copy.
+public class ArchiveOrders {
+    private static final String DEFAULT_DB = "jdbc:derby:./data/OakDonutsDB;create=true";
+    private static final String DEFAULT_ARCHIVE = "data/archive";
+    private static final int DEFAULT_DAYS = 365;
+
+    // APPLICATION ENTRY POINT
+    public static void main(String[] args) throws Exception {
+        String url = DEFAULT_DB;
+        String archiveDir = DEFAULT_ARCHIVE;
+        int days = DEFAULT_DAYS;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--db": url = args[i + 1]; break;
+                case "--archive": archiveDir = args[i + 1]; break;
+                case "--days": days = Integer.parseInt(args[i + 1]); break;
+                default:
+                    System.err.println("Usage: ArchiveOrders [--days N] [--db URL] [--archive DIR]");
+                    System.exit(2);
+            }
+        }
+
+        DatabaseManager db = new DatabaseManager(url, 1, new OrderArchive(Paths.get(archiveDir)));
+        long start = System.nanoTime();
+        int moved;
+        try {
+            moved = db.archiveOrders(LocalDate.now().minusDays(days).atStartOfDay());
+        } finally {
+            db.close();
+        }
+        if (moved < 0) {
+            System.err.println("Archiving failed");
+            System.exit(1);
+        }
+        System.err.printf("archived %d orders older than %d days to %s in %d ms%n", moved, days, archiveDir, (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,105 @@
+package com.oakdonuts.tools;
+
+import com.oakdonuts.database.DatabaseManager;
+import com.oakdonuts.models.MenuItem;
+import com.oakdonuts.models.Order;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// ConcurrencyCheck - runs checkouts and history reads from many threads at once and verifies nothing is lost or torn
+// Usage: java com.oakdonuts.tools.ConcurrencyCheck [writers] [ordersPerWriter] [readers]
+public class ConcurrencyCheck {
+
+    // APPLICATION ENTRY POINT - exits with status 1 if any check fails
+    public static void main(String[] args) throws Exception {
+        int writers = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int ordersPerWriter = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int readers = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+
+        DatabaseManager db = new DatabaseManager("jdbc:derby:memory:concurrency;create=true");
+        List<MenuItem> menu = db.getMenuCatalog().getItems();
+        AtomicLong expectedItems = new AtomicLong();
+        AtomicInteger failedWrites = new AtomicInteger();
+        AtomicInteger tornReads = new AtomicInteger();
+        AtomicInteger reads = new AtomicInteger();
+        AtomicBoolean writing = new AtomicBoolean(true);
+
+        // platform threads: Derby waits for row locks inside synchronized blocks, which would pin virtual-thread carriers
+        ExecutorService executor = Executors.newCachedThreadPool();
+        long start = System.nanoTime();
+
+        // READER BLOCK - every order seen must be complete: its items add up to its total
+        List<Future<?>> readerTasks = new ArrayList<>();
+        for (int r = 0; r < readers; r++) {
+            readerTasks.add(executor.submit(() -> {
+                while (writing.get()) {
+                    for (Order order : db.getOrders()) {
+                        if (!isComplete(order)) tornReads.incrementAndGet();
+                    }
+                    reads.incrementAndGet();
+                }
+            }));
+        }
+
+        // WRITER BLOCK - each writer checks out its own orders with random carts (fixed seed per writer)
+        List<Future<?>> writerTasks = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            writerTasks.add(executor.submit(() -> {
+                Random random = new Random(writer);
+                for (int i = 0; i < ordersPerWriter; i++) {
+                    List<MenuItem> cart = new ArrayList<>();
+                    int size = 1 + random.nextInt(12);
+                    double total = 0;
+                    for (int j = 0; j < size; j++) {
+                        MenuItem item = menu.get(random.nextInt(menu.size()));
+                        cart.add(item);
+                        total += item.price;
+                    }
+                    String transactionId = String.format("CC-%02d-%05d", writer, i);
+                    if (db.createOrder(transactionId, "2025-01-01 08:00:00", total, cart)) {
+                        expectedItems.addAndGet(size);
+                        Order saved = db.getOrder(transactionId);
+                        if (saved == null || !isComplete(saved)) tornReads.incrementAndGet();
+                    } else {
+                        failedWrites.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> task : writerTasks) task.get();
+        writing.set(false);
+        for (Future<?> task : readerTasks) task.get();
+        executor.shutdown();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        // FINAL STATE BLOCK - every order and every donut must be there exactly once
+        List<Order> orders = db.getOrders();
+        long items = orders.stream().mapToLong(order -> order.items.size()).sum();
+        int expectedOrders = writers * ordersPerWriter;
+        boolean ok = failedWrites.get() == 0 && tornReads.get() == 0 && orders.size() == expectedOrders && items == expectedItems.get();
+
+        System.out.printf("writers=%d readers=%d orders=%d/%d items=%d/%d failedWrites=%d tornReads=%d fullReads=%d time=%.2fs%n",
+                writers, readers, orders.size(), expectedOrders, items, expectedItems.get(), failedWrites.get(), tornReads.get(), reads.get(), seconds);
+        System.out.println(ok ? "PASS" : "FAIL");
+        db.close();
+        System.exit(ok ? 0 : 1);
+    }
+
+    // IS COMPLETE - an order is whole when its item prices sum to its saved total
+    private static boolean isComplete(Order order) {
+        double sum = 0;
+        for (MenuItem item : order.items) {
+            sum += item.price;
+        }
+        return !order.items.isEmpty() && Math.abs(sum - order.totalPrice) < 0.001;
+    }
+}
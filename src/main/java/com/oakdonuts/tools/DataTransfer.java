@@ -0,0 +1,317 @@
+package com.oakdonuts.tools;
+
+import com.oakdonuts.archive.OrderArchive;
+import com.oakdonuts.database.DatabaseManager;
+import com.oakdonuts.database.OrderShards;
+import com.oakdonuts.models.MenuItem;
+import com.oakdonuts.models.NewOrder;
+import com.oakdonuts.models.OrderLine;
+import com.oakdonuts.util.Csv;
+import com.oakdonuts.util.Json;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+// DataTransfer - streams the menu or the order history between the database and CSV or NDJSON files
+// Usage: java com.oakdonuts.tools.DataTransfer import|export menu|orders <file.csv|file.ndjson|-> [--db URL] [--batch N] [--archive DIR]
+//            [--store NAME [--shards DIR] [--partition store|day]]
+// The format follows the file extension ("-" is stdin/stdout as CSV unless --format ndjson is given).
+// Files are read and written one record at a time, so memory use does not grow with the size of the history.
+//   menu CSV     id,name,description,price,category
+//   orders CSV   transaction_id,date,total,status,menu_item_id,quantity,unit_price,item_name - one row per line, rows of an
+//                order adjacent; an order with no lines is one row with the line columns empty
+//   orders NDJSON {"transactionId":..,"date":..,"total":..,"status":..,"items":[{"menuItemId":..,"quantity":..,"unitPrice":..,"name":..}]}
+// Importing orders is safe to repeat: IDs already in the database or the order archive are skipped, and exports
+// include archived orders. The archive is data/archive for the default database, else none unless --archive is given.
+// With --store, imported orders go to that store's shard under DIR (default data/stores, see OrderShards), one
+// database per store or, with --partition day, per store and day; the --db database supplies a new shard's menu.
+public class DataTransfer {
+    private static final String DEFAULT_DB = "jdbc:derby:./data/OakDonutsDB;create=true";
+    private static final String DEFAULT_ARCHIVE = "data/archive";
+    private static final String DEFAULT_SHARDS = "data/stores";
+    private static final int DEFAULT_POOL_SIZE = 8;
+    private static final int DEFAULT_BATCH = 1000;
+    private static final String[] MENU_HEADER = {"id", "name", "description", "price", "category"};
+    private static final String[] ORDER_HEADER = {"transaction_id", "date", "total", "status", "menu_item_id", "quantity", "unit_price", "item_name"};
+    private static final int ORDER_FIELDS_WITHOUT_NAME = 7; // files exported before lines kept their item name
+
+    // USAGE - print the command line and exit with status 2
+    private static void usage() {
+        System.err.println("Usage: DataTransfer import|export menu|orders <file.csv|file.ndjson|-> [--db URL] [--batch N] [--format csv|ndjson] [--archive DIR] "
+                + "[--store NAME [--shards DIR] [--partition store|day]]");
+        System.exit(2);
+    }
+
+    // APPLICATION ENTRY POINT
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3 || !(args[0].equals("import") || args[0].equals("export")) || !(args[1].equals("menu") || args[1].equals("orders"))) {
+            usage();
+        }
+        String file = args[2];
+        String url = DEFAULT_DB;
+        int batch = DEFAULT_BATCH;
+        String archiveDir = null;
+        String store = null;
+        String shardsDir = DEFAULT_SHARDS;
+        boolean perDay = false;
+        String format = file.toLowerCase().endsWith(".ndjson") || file.toLowerCase().endsWith(".jsonl") ? "ndjson" : "csv";
+        for (int i = 3; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--db": url = args[i + 1]; break;
+                case "--batch": batch = Integer.parseInt(args[i + 1]); break;
+                case "--format": format = args[i + 1]; break;
+                case "--archive": archiveDir = args[i + 1]; break;
+                case "--store": store = args[i + 1]; break;
+                case "--shards": shardsDir = args[i + 1]; break;
+                case "--partition": perDay = args[i + 1].equals("day"); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (batch < 1) {
+            System.err.println("--batch must be at least 1");
+            usage();
+        }
+        boolean ndjson = format.equals("ndjson");
+        if (store != null && !(args[0].equals("import") && args[1].equals("orders"))) {
+            throw new IllegalArgumentException("--store only applies to importing orders");
+        }
+
+        if (archiveDir == null && url.equals(DEFAULT_DB)) archiveDir = DEFAULT_ARCHIVE;
+        OrderArchive archive = archiveDir != null ? new OrderArchive(Paths.get(archiveDir)) : OrderArchive.none();
+        DatabaseManager db = new DatabaseManager(url, DEFAULT_POOL_SIZE, archive);
+        long start = System.nanoTime();
+        int count;
+        try {
+            if (args[0].equals("import")) {
+                try (Reader in = openReader(file)) {
+                    if (args[1].equals("menu")) {
+                        count = db.importMenuItems(ndjson ? menuFromNdjson(in) : menuFromCsv(in), batch);
+                    } else {
+                        Iterator<NewOrder> orders = ndjson ? ordersFromNdjson(in) : ordersFromCsv(in);
+                        if (store != null) {
+                            try (OrderShards shards = new OrderShards(Paths.get(shardsDir), db, perDay)) {
+                                count = shards.importOrders(store, orders, batch);
+                            }
+                        } else {
+                            count = db.importOrders(orders, batch);
+                        }
+                    }
+                }
+            } else {
+                try (Writer out = openWriter(file)) {
+                    count = args[1].equals("menu") ? exportMenu(db, out, ndjson) : exportOrders(db, out, ndjson);
+                }
+            }
+        } finally {
+            db.close();
+        }
+        if (count < 0) {
+            System.err.println("Export failed");
+            System.exit(1);
+        }
+        System.err.printf("%sed %d %s in %d ms%n", args[0], count, args[1].equals("menu") ? "menu items" : "orders", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // EXPORT BLOCK
+    private static int exportMenu(DatabaseManager db, Writer out, boolean ndjson) throws IOException {
+        if (!ndjson) Csv.writeRecord(out, (Object[]) MENU_HEADER);
+        List<MenuItem> items = db.getMenuItems();
+        for (MenuItem item : items) {
+            if (ndjson) {
+                Map<String, Object> json = new LinkedHashMap<>();
+                json.put("id", item.id);
+                json.put("name", item.name);
+                json.put("description", item.description);
+                json.put("price", item.price);
+                json.put("category", item.category);
+                writeLine(out, json);
+            } else {
+                Csv.writeRecord(out, item.id, item.name, item.description, item.price, item.category);
+            }
+        }
+        return items.size();
+    }
+
+    private static int exportOrders(DatabaseManager db, Writer out, boolean ndjson) throws IOException {
+        if (!ndjson) Csv.writeRecord(out, (Object[]) ORDER_HEADER);
+        try {
+            return db.exportOrders(order -> {
+                try {
+                    if (ndjson) {
+                        writeLine(out, order.toJson());
+                    } else if (order.lines.isEmpty()) {
+                        Csv.writeRecord(out, order.transactionId, order.date, order.totalPrice, order.status, null, null, null, null);
+                    } else {
+                        for (OrderLine line : order.lines) {
+                            Csv.writeRecord(out, order.transactionId, order.date, order.totalPrice, order.status, line.menuItemId, line.quantity, line.unitPrice, line.name);
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void writeLine(Writer out, Object json) throws IOException {
+        out.write(Json.write(json));
+        out.write('\n');
+    }
+
+    // CSV IMPORT BLOCK - the header row is required and skipped
+    private static Iterator<MenuItem> menuFromCsv(Reader in) {
+        Csv.RecordReader csv = new Csv.RecordReader(in);
+        return new RecordIterator<MenuItem>() {
+            boolean headerRead;
+
+            MenuItem read() throws IOException {
+                if (!headerRead) {
+                    csv.readRecord();
+                    headerRead = true;
+                }
+                List<String> r = csv.readRecord();
+                if (r == null) return null;
+                if (r.size() < MENU_HEADER.length) throw new IOException("Expected " + MENU_HEADER.length + " fields before line " + csv.getLine());
+                int id = r.get(0).isEmpty() ? 0 : Integer.parseInt(r.get(0));
+                return new MenuItem(id, r.get(1), r.get(2), Double.parseDouble(r.get(3)), r.get(4));
+            }
+        };
+    }
+
+    // ORDERS FROM CSV - adjacent rows with the same transaction ID become one order
+    private static Iterator<NewOrder> ordersFromCsv(Reader in) {
+        Csv.RecordReader csv = new Csv.RecordReader(in);
+        return new RecordIterator<NewOrder>() {
+            List<String> pending;
+            boolean headerRead;
+
+            NewOrder read() throws IOException {
+                if (!headerRead) {
+                    csv.readRecord();
+                    headerRead = true;
+                    pending = nextRow();
+                }
+                if (pending == null) return null;
+                List<String> first = pending;
+                NewOrder order = new NewOrder(first.get(0), first.get(1), Double.parseDouble(first.get(2)), new ArrayList<>(), first.get(3));
+                while (pending != null && pending.get(0).equals(order.transactionId)) {
+                    if (!pending.get(4).isEmpty()) {
+                        String unitPrice = pending.get(6);
+                        String name = pending.size() > ORDER_FIELDS_WITHOUT_NAME ? pending.get(7) : "";
+                        order.lines.add(new OrderLine(Integer.parseInt(pending.get(4)), Integer.parseInt(pending.get(5)),
+                                unitPrice.isEmpty() ? null : Double.valueOf(unitPrice), name.isEmpty() ? null : name));
+                    }
+                    pending = nextRow();
+                }
+                return order;
+            }
+
+            List<String> nextRow() throws IOException {
+                List<String> r = csv.readRecord();
+                if (r != null && r.size() < ORDER_FIELDS_WITHOUT_NAME) throw new IOException("Expected " + ORDER_HEADER.length + " fields before line " + csv.getLine());
+                return r;
+            }
+        };
+    }
+
+    // NDJSON IMPORT BLOCK - one JSON object per line; blank lines are skipped
+    private static Iterator<MenuItem> menuFromNdjson(Reader in) {
+        BufferedReader lines = new BufferedReader(in);
+        return new RecordIterator<MenuItem>() {
+            MenuItem read() throws IOException {
+                Map<?, ?> json = nextObject(lines);
+                if (json == null) return null;
+                Object id = json.get("id");
+                return new MenuItem(id == null ? 0 : ((Number) id).intValue(), (String) json.get("name"), (String) json.get("description"),
+                        ((Number) json.get("price")).doubleValue(), (String) json.get("category"));
+            }
+        };
+    }
+
+    private static Iterator<NewOrder> ordersFromNdjson(Reader in) {
+        BufferedReader lines = new BufferedReader(in);
+        return new RecordIterator<NewOrder>() {
+            NewOrder read() throws IOException {
+                Map<?, ?> json = nextObject(lines);
+                if (json == null) return null;
+                List<OrderLine> orderLines = new ArrayList<>();
+                Object items = json.get("items");
+                if (items != null) {
+                    for (Object item : (List<?>) items) {
+                        Map<?, ?> line = (Map<?, ?>) item;
+                        Number unitPrice = (Number) line.get("unitPrice");
+                        orderLines.add(new OrderLine(((Number) line.get("menuItemId")).intValue(), ((Number) line.get("quantity")).intValue(),
+                                unitPrice == null ? null : unitPrice.doubleValue(), (String) line.get("name")));
+                    }
+                }
+                String status = (String) json.get("status");
+                return new NewOrder((String) json.get("transactionId"), (String) json.get("date"), ((Number) json.get("total")).doubleValue(),
+                        orderLines, status != null ? status : "pending");
+            }
+        };
+    }
+
+    private static Map<?, ?> nextObject(BufferedReader lines) throws IOException {
+        String line;
+        do {
+            line = lines.readLine();
+            if (line == null) return null;
+        } while (line.isBlank());
+        return (Map<?, ?>) Json.parse(line);
+    }
+
+    // IO HELPERS BLOCK
+    private static Reader openReader(String file) throws IOException {
+        if (file.equals("-")) return new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        return Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8);
+    }
+
+    private static Writer openWriter(String file) throws IOException {
+        if (file.equals("-")) return new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        return Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8);
+    }
+
+    // RecordIterator - adapts a read-next-or-null source to Iterator, reading one record ahead
+    private abstract static class RecordIterator<T> implements Iterator<T> {
+        private T next;
+        private boolean done;
+
+        abstract T read() throws IOException;
+
+        public boolean hasNext() {
+            if (next == null && !done) {
+                try {
+                    next = read();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                done = next == null;
+            }
+            return next != null;
+        }
+
+        public T next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            T item = next;
+            next = null;
+            return item;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.oakdonuts.tools;
+
+import com.oakdonuts.database.DatabaseManager;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Random;
+
+// OrderHistoryBenchmark - times order history loading against an in-memory database of growing size
+// Usage: java com.oakdonuts.tools.OrderHistoryBenchmark [orderCount ...]
+public class OrderHistoryBenchmark {
+    private static final int WARMUP_RUNS = 3;
+    private static final int MEASURED_RUNS = 5;
+
+    // APPLICATION ENTRY POINT
+    public static void main(String[] args) throws Exception {
+        int[] sizes = args.length > 0 ? new int[args.length] : new int[]{100, 500, 1000, 2000};
+        for (int i = 0; i < args.length; i++) {
+            sizes[i] = Integer.parseInt(args[i]);
+        }
+
+        System.out.printf("%10s %16s %16s%n", "orders", "getOrders (ms)", "N+1 legacy (ms)");
+        for (int size : sizes) {
+            String url = "jdbc:derby:memory:history" + size + ";create=true";
+            DatabaseManager db = new DatabaseManager(url);
+            try (Connection conn = DriverManager.getConnection(url)) {
+                seedOrders(conn, size);
+                double joined = time(() -> db.getOrders().size());
+                double legacy = time(() -> loadLegacy(conn));
+                System.out.printf("%10d %16.2f %16.2f%n", size, joined, legacy);
+            }
+            db.close();
+        }
+    }
+
+    // SEED BLOCK - insert orders with 1-12 random menu items each (fixed seed for repeatable runs)
+    private static void seedOrders(Connection conn, int count) throws Exception {
+        Random random = new Random(42);
+        conn.setAutoCommit(false);
+        PreparedStatement order = conn.prepareStatement("INSERT INTO ORDERS (TRANSACTION_ID, ORDER_DATE, TOTAL_PRICE, STATUS) VALUES (?, ?, ?, 'pending')");
+        PreparedStatement line = conn.prepareStatement("INSERT INTO ORDER_ITEMS (TRANSACTION_ID, MENU_ITEM_ID) VALUES (?, ?)");
+        for (int i = 0; i < count; i++) {
+            String transactionId = String.format("OD-%08X", i);
+            order.setString(1, transactionId);
+            order.setTimestamp(2, Timestamp.valueOf(String.format("2025-%02d-%02d %02d:%02d:00", 1 + i % 12, 1 + i % 28, i % 24, i % 60)));
+            order.setDouble(3, 0);
+            order.addBatch();
+            int lines = 1 + random.nextInt(12);
+            for (int j = 0; j < lines; j++) {
+                line.setString(1, transactionId);
+                line.setInt(2, 1 + random.nextInt(8));
+                line.addBatch();
+            }
+            if (i % 1000 == 999) {
+                order.executeBatch();
+                line.executeBatch();
+            }
+        }
+        order.executeBatch();
+        line.executeBatch();
+        conn.commit();
+        conn.setAutoCommit(true);
+    }
+
+    // LEGACY LOADER - the original one-query-per-order approach, kept for comparison
+    private static int loadLegacy(Connection conn) throws Exception {
+        int items = 0;
+        Statement stmt = conn.createStatement();
+        ResultSet rs = stmt.executeQuery("SELECT * FROM ORDERS ORDER BY ORDER_DATE DESC");
+        while (rs.next()) {
+            Statement itemStmt = conn.createStatement();
+            ResultSet itemRs = itemStmt.executeQuery("SELECT m.* FROM MENU_ITEMS m JOIN ORDER_ITEMS oi ON m.ID=oi.MENU_ITEM_ID WHERE oi.TRANSACTION_ID='" + rs.getString("TRANSACTION_ID") + "'");
+            while (itemRs.next()) {
+                items++;
+            }
+            itemStmt.close();
+        }
+        stmt.close();
+        return items;
+    }
+
+    // TIMING HELPER - average wall time in milliseconds after warmup
+    private static double time(Task task) throws Exception {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            task.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            task.run();
+        }
+        return (System.nanoTime() - start) / 1e6 / MEASURED_RUNS;
+    }
+
+    private interface Task {
+        int run() throws Exception;
+    }
+}
@@ -0,0 +1,301 @@
+package com.oakdonuts.tools;
+
+import com.oakdonuts.database.DatabaseManager;
+import com.oakdonuts.metrics.LatencyHistogram;
+import com.oakdonuts.metrics.MetricsRegistry;
+import com.oakdonuts.models.MenuItem;
+import com.oakdonuts.util.TransactionIds;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// RushHourSimulation - replays a synthetic Saturday-morning rush against DatabaseManager and reports latency
+// Usage: java com.oakdonuts.tools.RushHourSimulation [--duration S] [--rate R] [--profile flat|rush] [--terminals N]
+//            [--cart-mean M] [--history-rate H] [--prep-seconds P] [--warmup S] [--seed N] [--db URL]
+// Customers arrive as a Poisson process at up to R per second; "rush" (the default) ramps from a fifth of R to R
+// and back over the run. Each customer reads the menu, places an order for 1 + Poisson(M - 1) donuts picked from
+// MENU_ITEMS (popular items first, Zipf-weighted), and the kitchen moves the order to preparing P seconds after it
+// was due to be placed and to ready P seconds after that. Staff open the full order history H times per second.
+// The load is open-loop: every operation has an intended start time fixed in advance, and N terminal threads take
+// operations off a delay queue as they fall due. Response time is measured from the intended start, so time spent
+// waiting for a free terminal or behind a slow call counts (no coordinated omission); service time, from the actual
+// start, is reported next to it. The default database is a fresh in-memory one with the seed menu.
+public class RushHourSimulation {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String[] OPERATIONS = {"menu", "createOrder", "updateOrderStatus", "getOrders"};
+    private static final long DRAIN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    private final DatabaseManager db;
+    private final DelayQueue<Operation> due = new DelayQueue<>();
+    private final Map<String, Stats> stats = new LinkedHashMap<>();
+    private final TransactionIds transactionIds = new TransactionIds("SIM", 0);
+    private final long prepNanos;
+    private volatile long recordFrom;
+
+    private RushHourSimulation(DatabaseManager db, long prepNanos) {
+        this.db = db;
+        this.prepNanos = prepNanos;
+        for (String name : OPERATIONS) {
+            stats.put(name, new Stats());
+        }
+    }
+
+    // APPLICATION ENTRY POINT
+    public static void main(String[] args) throws Exception {
+        int durationSeconds = 60;
+        double rate = 20;
+        String profile = "rush";
+        int terminals = 8;
+        double cartMean = 3;
+        double historyRate = 0.2;
+        double prepSeconds = 2;
+        int warmupSeconds = 5;
+        long seed = 1;
+        String url = "jdbc:derby:memory:rushhour;create=true";
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--duration": durationSeconds = Integer.parseInt(args[i + 1]); break;
+                case "--rate": rate = Double.parseDouble(args[i + 1]); break;
+                case "--profile": profile = args[i + 1]; break;
+                case "--terminals": terminals = Integer.parseInt(args[i + 1]); break;
+                case "--cart-mean": cartMean = Double.parseDouble(args[i + 1]); break;
+                case "--history-rate": historyRate = Double.parseDouble(args[i + 1]); break;
+                case "--prep-seconds": prepSeconds = Double.parseDouble(args[i + 1]); break;
+                case "--warmup": warmupSeconds = Integer.parseInt(args[i + 1]); break;
+                case "--seed": seed = Long.parseLong(args[i + 1]); break;
+                case "--db": url = args[i + 1]; break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (!profile.equals("rush") && !profile.equals("flat")) throw new IllegalArgumentException("Unknown profile " + profile);
+
+        DatabaseManager db = new DatabaseManager(url, Math.max(terminals, 1));
+        try {
+            RushHourSimulation simulation = new RushHourSimulation(db, (long) (prepSeconds * 1e9));
+            List<MenuItem> menu = db.getMenuItems();
+            if (menu.isEmpty()) throw new IllegalStateException("MENU_ITEMS is empty");
+            long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200);
+            long durationNanos = TimeUnit.SECONDS.toNanos(durationSeconds);
+            simulation.recordFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+            int customers = simulation.schedule(new Random(seed), menu, start, durationNanos, rate, profile.equals("rush"), cartMean, historyRate);
+
+            System.out.printf("Rush-hour simulation: %d s, %s profile, peak %.1f customers/s (%d scheduled), %d terminals, cart mean %.1f, %d s warm-up%n",
+                    durationSeconds, profile, rate, customers, terminals, cartMean, warmupSeconds);
+            simulation.run(terminals, start + durationNanos + 2 * simulation.prepNanos + DRAIN_TIMEOUT_NANOS);
+            simulation.report();
+        } finally {
+            db.close();
+        }
+    }
+
+    // SCHEDULE - fix every customer's and history reader's intended start time up front
+    // Arrivals follow a Poisson process at the peak rate, thinned to the profile's rate at each moment.
+    private int schedule(Random random, List<MenuItem> menu, long start, long durationNanos, double peakRate, boolean rush,
+                         double cartMean, double historyRate) {
+        double[] weights = new double[menu.size()];
+        double totalWeight = 0;
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = 1.0 / (i + 1);
+            totalWeight += weights[i];
+        }
+        int customers = 0;
+        for (double t = nextArrival(random, peakRate); t * 1e9 < durationNanos; t += nextArrival(random, peakRate)) {
+            double fraction = t * 1e9 / durationNanos;
+            double rate = rush ? peakRate * (0.2 + 0.8 * Math.sin(Math.PI * fraction)) : peakRate;
+            if (random.nextDouble() * peakRate > rate) continue;
+            long intended = start + (long) (t * 1e9);
+            List<MenuItem> cart = new ArrayList<>();
+            int size = 1 + poisson(random, cartMean - 1);
+            for (int i = 0; i < size; i++) {
+                cart.add(menu.get(pick(random, weights, totalWeight)));
+            }
+            due.add(new Operation("menu", intended, null, null));
+            due.add(new Operation("createOrder", intended, cart, null));
+            customers++;
+        }
+        if (historyRate > 0) {
+            for (double t = nextArrival(random, historyRate); t * 1e9 < durationNanos; t += nextArrival(random, historyRate)) {
+                due.add(new Operation("getOrders", start + (long) (t * 1e9), null, null));
+            }
+        }
+        return customers;
+    }
+
+    // RUN - terminals take operations as they fall due until none are left, or the deadline passes
+    private void run(int terminals, long deadline) throws InterruptedException {
+        AtomicInteger outstanding = new AtomicInteger(due.size());
+        List<Thread> threads = new ArrayList<>();
+        // platform threads, for the reason given in ConcurrencyCheck
+        for (int i = 0; i < terminals; i++) {
+            threads.add(Thread.ofPlatform().name("terminal-" + i).start(() -> {
+                try {
+                    while (outstanding.get() > 0) {
+                        Operation operation = due.poll(100, TimeUnit.MILLISECONDS);
+                        if (operation == null) continue;
+                        List<Operation> followUps = execute(operation);
+                        // follow-ups are counted before this operation is marked done, so the count never drops to zero early
+                        outstanding.addAndGet(followUps.size());
+                        due.addAll(followUps);
+                        outstanding.decrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        }
+        if (outstanding.get() > 0) System.out.printf("Gave up with %d operations still queued%n", outstanding.get());
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+    }
+
+    // EXECUTE - run one operation, record its times, and return what the kitchen does next with a new order
+    private List<Operation> execute(Operation operation) {
+        long started = System.nanoTime();
+        boolean ok;
+        List<Operation> followUps = new ArrayList<>();
+        try {
+            switch (operation.kind) {
+                case "menu":
+                    ok = !db.getMenuItems().isEmpty();
+                    break;
+                case "createOrder":
+                    String transactionId = transactionIds.next();
+                    double total = 0;
+                    for (MenuItem item : operation.cart) {
+                        total += item.price;
+                    }
+                    ok = db.createOrder(transactionId, LocalDateTime.now().format(DATE_FORMAT), Math.round(total * 100) / 100.0, operation.cart);
+                    if (ok) followUps.add(new Operation("updateOrderStatus", operation.intended + prepNanos, null, transactionId, "preparing"));
+                    break;
+                case "updateOrderStatus":
+                    ok = db.updateOrderStatus(operation.transactionId, operation.status);
+                    if (ok && operation.status.equals("preparing")) {
+                        followUps.add(new Operation("updateOrderStatus", operation.intended + prepNanos, null, operation.transactionId, "ready"));
+                    }
+                    break;
+                default:
+                    db.getOrders();
+                    ok = true;
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            ok = false;
+        }
+        long finished = System.nanoTime();
+        if (operation.intended >= recordFrom) stats.get(operation.kind).record(operation.intended, started, finished, ok);
+        return followUps;
+    }
+
+    // REPORT - throughput and response/service time percentiles per operation, after the warm-up. Throughput is over
+    // the span of each operation's intended start times, so the status-update drain after the run does not dilute the
+    // menu and order rates.
+    private void report() {
+        System.out.printf("%n%-18s %8s %7s %8s | %-38s | %-38s%n", "operation", "count", "errors", "ops/s", "response ms (from intended start)", "service ms (from actual start)");
+        System.out.printf("%-18s %8s %7s %8s | %8s %8s %8s %10s | %8s %8s %8s %10s%n", "", "", "", "", "p50", "p90", "p99", "max", "p50", "p90", "p99", "max");
+        stats.forEach((name, stat) -> {
+            LatencyHistogram.Snapshot response = stat.response.snapshot();
+            LatencyHistogram.Snapshot service = stat.service.snapshot();
+            System.out.printf("%-18s %8d %7d %8s | %8s %8s %8s %10s | %8s %8s %8s %10s%n", name, response.count, stat.errors.sum(), stat.rate(response.count),
+                    millis(response.percentile(50)), millis(response.percentile(90)), millis(response.percentile(99)), millis(response.maxNanos),
+                    millis(service.percentile(50)), millis(service.percentile(90)), millis(service.percentile(99)), millis(service.maxNanos));
+        });
+    }
+
+    // HELPERS BLOCK
+    private static double nextArrival(Random random, double rate) {
+        return -Math.log(1 - random.nextDouble()) / rate;
+    }
+
+    private static int poisson(Random random, double mean) {
+        if (mean <= 0) return 0;
+        double limit = Math.exp(-mean);
+        double product = random.nextDouble();
+        int count = 0;
+        while (product > limit) {
+            product *= random.nextDouble();
+            count++;
+        }
+        return count;
+    }
+
+    private static int pick(Random random, double[] weights, double totalWeight) {
+        double target = random.nextDouble() * totalWeight;
+        for (int i = 0; i < weights.length; i++) {
+            target -= weights[i];
+            if (target < 0) return i;
+        }
+        return weights.length - 1;
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2f", MetricsRegistry.millis(nanos));
+    }
+
+    // Operation - one simulated call, due at its intended start time
+    private static class Operation implements Delayed {
+        final String kind;
+        final long intended;
+        final List<MenuItem> cart;
+        final String transactionId;
+        final String status;
+
+        Operation(String kind, long intended, List<MenuItem> cart, String transactionId) {
+            this(kind, intended, cart, transactionId, null);
+        }
+
+        Operation(String kind, long intended, List<MenuItem> cart, String transactionId, String status) {
+            this.kind = kind;
+            this.intended = intended;
+            this.cart = cart;
+            this.transactionId = transactionId;
+            this.status = status;
+        }
+
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(intended - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        public int compareTo(Delayed other) {
+            return Long.compare(intended, ((Operation) other).intended);
+        }
+    }
+
+    // Stats - response and service time histograms, an error count and the first and last intended start for one kind
+    // of operation
+    private static class Stats {
+        final LatencyHistogram response = new LatencyHistogram();
+        final LatencyHistogram service = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+        final LongAccumulator firstIntended = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        final LongAccumulator lastIntended = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+        void record(long intended, long started, long finished, boolean ok) {
+            response.record(finished - intended);
+            service.record(finished - started);
+            if (!ok) errors.increment();
+            firstIntended.accumulate(intended);
+            lastIntended.accumulate(intended);
+        }
+
+        // RATE - count per second of intended start times, or "-" when they do not span any time
+        String rate(long count) {
+            long span = lastIntended.get() - firstIntended.get();
+            return count > 1 && span > 0 ? String.format("%.1f", count / (span / 1e9)) : "-";
+        }
+    }
+}
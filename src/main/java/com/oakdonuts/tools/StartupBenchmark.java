@@ -0,0 +1,116 @@
+package com.oakdonuts.tools;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// StartupBenchmark - cold-starts the app repeatedly and reports time to first paint and to first interactive
+// Usage: java com.oakdonuts.tools.StartupBenchmark [--runs N] [--dir DIR] [--cds FILE] [--headless]
+//   gradle startupBenchmark --args="--runs 10"     same, on the classpath the AppCDS archive was built for
+// Each run is a new JVM started with -Doak.startupReport=true -Doak.exitAfterStartup=true, which prints the
+// milestones (see MainFrame.startupMark) and quits. Times are from just before the process is launched, so they
+// include JVM startup. With --cds (default build/cds/oak.jsa, when present) runs alternate with and without the
+// archive. DIR is the working directory the app runs in, i.e. whose data/ database it opens (default: current).
+// --headless times the order server instead of the window; it has no first paint.
+public class StartupBenchmark {
+    private static final String DEFAULT_CDS = "build/cds/oak.jsa";
+    private static final String MARK_PREFIX = "oak.startup ";
+
+    // APPLICATION ENTRY POINT
+    public static void main(String[] args) throws Exception {
+        int runs = 10;
+        String dir = ".";
+        String cds = Files.exists(Paths.get(DEFAULT_CDS)) ? DEFAULT_CDS : null;
+        boolean headless = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--runs": runs = Integer.parseInt(args[++i]); break;
+                case "--dir": dir = args[++i]; break;
+                case "--cds": cds = args[++i]; break;
+                case "--headless": headless = true; break;
+                default:
+                    System.err.println("Usage: StartupBenchmark [--runs N] [--dir DIR] [--cds FILE] [--headless]");
+                    System.exit(2);
+            }
+        }
+        if (cds != null) cds = new File(cds).getAbsolutePath();
+
+        // RUN BLOCK - one untimed run of each kind first, so the OS file cache is warm for every timed run
+        Map<String, List<Double>> plain = new LinkedHashMap<>();
+        Map<String, List<Double>> shared = new LinkedHashMap<>();
+        launch(dir, null, headless);
+        if (cds != null) launch(dir, cds, headless);
+        for (int run = 0; run < runs; run++) {
+            record(plain, launch(dir, null, headless));
+            if (cds != null) record(shared, launch(dir, cds, headless));
+        }
+
+        System.out.printf("%d runs, %s, working directory %s%n", runs, headless ? "headless server" : "window", new File(dir).getAbsolutePath());
+        report("default CDS", plain);
+        if (cds != null) report("AppCDS " + cds, shared);
+    }
+
+    // LAUNCH - start one app JVM and return milliseconds from launch to each milestone it printed
+    private static Map<String, Double> launch(String dir, String cds, boolean headless) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        if (cds != null) {
+            command.add("-XX:SharedArchiveFile=" + cds);
+            command.add("-Xlog:cds=error");
+        }
+        command.add("-Doak.startupReport=true");
+        command.add("-Doak.exitAfterStartup=true");
+        command.add("-Doak.archiveAfterDays=0");
+        command.add("com.oakdonuts.MainFrame");
+        if (headless) {
+            command.add("--headless");
+            command.add("--port");
+            command.add("0");
+        }
+        ProcessBuilder builder = new ProcessBuilder(command).directory(new File(dir)).redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        Map<String, Double> marks = new LinkedHashMap<>();
+        long launched = epochMicros(Instant.now());
+        Process process = builder.start();
+        try (BufferedReader err = new BufferedReader(new InputStreamReader(process.getErrorStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = err.readLine()) != null) {
+                if (!line.startsWith(MARK_PREFIX)) continue;
+                String[] parts = line.substring(MARK_PREFIX.length()).split(" ");
+                marks.put(parts[0], (Long.parseLong(parts[1]) - launched) / 1000.0);
+            }
+        }
+        int exit = process.waitFor();
+        if (exit != 0) throw new IllegalStateException("App exited with status " + exit + " - run it by hand to see why");
+        return marks;
+    }
+
+    // REPORT BLOCK
+    private static void record(Map<String, List<Double>> results, Map<String, Double> marks) {
+        marks.forEach((mark, millis) -> results.computeIfAbsent(mark, m -> new ArrayList<>()).add(millis));
+    }
+
+    private static void report(String label, Map<String, List<Double>> results) {
+        System.out.println(label);
+        System.out.printf("  %-18s %10s %10s %10s%n", "milestone", "min ms", "median ms", "max ms");
+        results.forEach((mark, times) -> {
+            List<Double> sorted = new ArrayList<>(times);
+            Collections.sort(sorted);
+            System.out.printf("  %-18s %10.1f %10.1f %10.1f%n", mark, sorted.get(0), sorted.get(sorted.size() / 2), sorted.get(sorted.size() - 1));
+        });
+    }
+
+    private static long epochMicros(Instant instant) {
+        return instant.getEpochSecond() * 1_000_000 + instant.getNano() / 1000;
+    }
+}
@@ -0,0 +1,88 @@
+package com.oakdonuts.tools;
+
+import com.oakdonuts.database.DatabaseManager;
+import com.oakdonuts.database.OrderShards;
+import com.oakdonuts.models.CategorySales;
+import com.oakdonuts.models.HourlySales;
+import com.oakdonuts.models.OrderSummary;
+
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+// StoreReport - order counts, sales and latest orders across every store's database, queried in parallel
+// Usage: java com.oakdonuts.tools.StoreReport [--shards DIR] [--partition store|day] [--days N] [--parallelism N] [--db URL]
+// Reads the shards under DIR (default data/stores) that stores write with -Doak.store=NAME, or that DataTransfer
+// imports with --store. Sales cover the last N days (default 7). --parallelism 1 queries one shard at a time, for
+// comparison; each section's time is printed after it.
+public class StoreReport {
+    private static final String DEFAULT_DB = "jdbc:derby:./data/OakDonutsDB;create=true";
+    private static final String DEFAULT_SHARDS = "data/stores";
+    private static final int LATEST_ORDERS = 10;
+
+    // APPLICATION ENTRY POINT
+    public static void main(String[] args) throws Exception {
+        String url = DEFAULT_DB;
+        String shardsDir = DEFAULT_SHARDS;
+        boolean perDay = false;
+        int days = 7;
+        int parallelism = 8;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--db": url = args[i + 1]; break;
+                case "--shards": shardsDir = args[i + 1]; break;
+                case "--partition": perDay = args[i + 1].equals("day"); break;
+                case "--days": days = Integer.parseInt(args[i + 1]); break;
+                case "--parallelism": parallelism = Integer.parseInt(args[i + 1]); break;
+                default:
+                    System.err.println("Usage: StoreReport [--shards DIR] [--partition store|day] [--days N] [--parallelism N] [--db URL]");
+                    System.exit(2);
+            }
+        }
+
+        DatabaseManager home = new DatabaseManager(url, 1);
+        try (OrderShards shards = new OrderShards(Paths.get(shardsDir), home, perDay, parallelism)) {
+            LocalDateTime to = LocalDate.now().plusDays(1).atStartOfDay();
+            LocalDateTime from = to.minusDays(days);
+
+            // COUNTS BLOCK
+            long start = System.nanoTime();
+            Map<String, Integer> counts = shards.countOrdersByStore();
+            System.out.println("Orders by store");
+            counts.forEach((store, count) -> System.out.printf("  %-20s %10d%n", store, count));
+            System.out.printf("  %-20s %10d   (%d ms)%n", "all stores", counts.values().stream().mapToInt(Integer::intValue).sum(), elapsed(start));
+
+            // SALES BLOCK
+            start = System.nanoTime();
+            List<HourlySales> hours = shards.getHourlySales(from, to);
+            int orders = 0;
+            double revenue = 0;
+            for (HourlySales hour : hours) {
+                orders += hour.orderCount;
+                revenue += hour.revenue;
+            }
+            System.out.printf("%nLast %d days: %d orders, $%.2f   (%d ms)%n", days, orders, revenue, elapsed(start));
+            start = System.nanoTime();
+            for (CategorySales category : shards.getCategorySales(from, to)) {
+                System.out.println("  " + category);
+            }
+            System.out.printf("  (%d ms)%n", elapsed(start));
+
+            // LATEST ORDERS BLOCK
+            start = System.nanoTime();
+            System.out.println("\nLatest orders");
+            for (OrderSummary summary : shards.getOrderSummariesAfter(null, null, LATEST_ORDERS)) {
+                System.out.println("  " + summary);
+            }
+            System.out.printf("  (%d ms)%n", elapsed(start));
+        } finally {
+            home.close();
+        }
+    }
+
+    private static long elapsed(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
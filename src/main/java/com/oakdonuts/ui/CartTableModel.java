@@ -0,0 +1,61 @@
+package com.oakdonuts.ui;
+
+import com.oakdonuts.models.Cart;
+
+import javax.swing.table.AbstractTableModel;
+
+// CartTableModel - table view of a Cart that repaints only the rows the cart reports as changed
+public class CartTableModel extends AbstractTableModel implements Cart.Listener {
+    private static final String[] COLUMNS = {"Item", "Qty", "Price"};
+
+    private final Cart cart;
+
+    // CONSTRUCTOR - show the given cart and follow its changes
+    public CartTableModel(Cart cart) {
+        this.cart = cart;
+        cart.addListener(this);
+    }
+
+    public int getRowCount() {
+        return cart.getLineCount();
+    }
+
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    public Object getValueAt(int row, int column) {
+        Cart.Line line = cart.getLine(row);
+        switch (column) {
+            case 0: return line.item.name;
+            case 1: return line.quantity;
+            default: return formatCents(line.getLineCents());
+        }
+    }
+
+    // CART LISTENER BLOCK
+    public void lineInserted(int row) {
+        fireTableRowsInserted(row, row);
+    }
+
+    public void lineUpdated(int row) {
+        fireTableRowsUpdated(row, row);
+    }
+
+    public void lineRemoved(int row) {
+        fireTableRowsDeleted(row, row);
+    }
+
+    public void linesRemoved(int firstRow, int lastRow) {
+        fireTableRowsDeleted(firstRow, lastRow);
+    }
+
+    // FORMAT CENTS - "$d.cc" without going through floating point
+    public static String formatCents(long cents) {
+        return "$" + cents / 100 + "." + (cents % 100 < 10 ? "0" : "") + cents % 100;
+    }
+}
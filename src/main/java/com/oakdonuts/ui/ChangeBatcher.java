@@ -0,0 +1,55 @@
+package com.oakdonuts.ui;
+
+import com.oakdonuts.events.DataChange;
+import com.oakdonuts.events.EventBus;
+
+import javax.swing.SwingUtilities;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+// ChangeBatcher - hands database change events to Swing in batches
+// Changes are queued on whatever thread committed them. The first change of a burst schedules one pass on the event
+// dispatch thread, and that pass delivers everything queued by then as one list, so a journal flush of many orders
+// or a menu import updates each table once rather than once per event.
+public class ChangeBatcher {
+    private final Queue<DataChange> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean deliveryScheduled = new AtomicBoolean();
+    private final List<Consumer<List<DataChange>>> listeners = new CopyOnWriteArrayList<>();
+
+    // CONSTRUCTOR - start queueing the bus's changes
+    public ChangeBatcher(EventBus<List<DataChange>> changes) {
+        changes.subscribe(this::enqueue);
+    }
+
+    // ADD LISTENER - called on the event dispatch thread with each batch, oldest change first
+    public void addListener(Consumer<List<DataChange>> listener) {
+        listeners.add(listener);
+    }
+
+    private void enqueue(List<DataChange> changes) {
+        pending.addAll(changes);
+        if (deliveryScheduled.compareAndSet(false, true)) SwingUtilities.invokeLater(this::deliver);
+    }
+
+    // DELIVER - cleared before draining, so a change queued during delivery schedules the next pass
+    private void deliver() {
+        deliveryScheduled.set(false);
+        List<DataChange> batch = new ArrayList<>();
+        for (DataChange change; (change = pending.poll()) != null; ) {
+            batch.add(change);
+        }
+        if (batch.isEmpty()) return;
+        for (Consumer<List<DataChange>> listener : listeners) {
+            try {
+                listener.accept(batch);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
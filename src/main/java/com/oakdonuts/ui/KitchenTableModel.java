@@ -0,0 +1,98 @@
+package com.oakdonuts.ui;
+
+import com.oakdonuts.kitchen.KitchenQueue;
+import com.oakdonuts.models.OrderLine;
+
+import javax.swing.event.TableModelEvent;
+import javax.swing.table.AbstractTableModel;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+// KitchenTableModel - the kitchen queue as a table: orders being prepared first, then waiting orders in priority order
+// Rows are a snapshot taken by refresh() on the event dispatch thread; the queue itself changes on any thread.
+public class KitchenTableModel extends AbstractTableModel {
+    private static final String[] COLUMNS = {"Transaction ID", "Placed", "Waiting", "Items", "Status"};
+    private static final int WAITING_COLUMN = 2;
+
+    private final KitchenQueue queue;
+    private final Function<List<OrderLine>, String> describeItems;
+    private List<KitchenQueue.Ticket> rows = new ArrayList<>();
+    private int preparingCount;
+
+    // CONSTRUCTOR - describeItems turns a ticket's lines into the Items column text
+    public KitchenTableModel(KitchenQueue queue, Function<List<OrderLine>, String> describeItems) {
+        this.queue = queue;
+        this.describeItems = describeItems;
+        refresh();
+    }
+
+    // REFRESH - re-read the queue
+    public void refresh() {
+        List<KitchenQueue.Ticket> preparing = queue.getInProgress();
+        List<KitchenQueue.Ticket> next = new ArrayList<>(preparing);
+        next.addAll(queue.getWaiting());
+        rows = next;
+        preparingCount = preparing.size();
+        fireTableDataChanged();
+    }
+
+    // TICK - repaint the waiting times only
+    public void tick() {
+        if (!rows.isEmpty()) fireTableChanged(new TableModelEvent(this, 0, rows.size() - 1, WAITING_COLUMN));
+    }
+
+    // ROW LOOKUP BLOCK
+    public String getTransactionId(int row) {
+        return rows.get(row).transactionId;
+    }
+
+    public boolean isPreparing(int row) {
+        return row < preparingCount;
+    }
+
+    public int findRow(String transactionId) {
+        for (int i = 0; i < rows.size(); i++) {
+            if (rows.get(i).transactionId.equals(transactionId)) return i;
+        }
+        return -1;
+    }
+
+    public int getPreparingCount() {
+        return preparingCount;
+    }
+
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    public Object getValueAt(int row, int column) {
+        KitchenQueue.Ticket ticket = rows.get(row);
+        switch (column) {
+            case 0: return ticket.transactionId;
+            case 1: return ticket.date.substring(11);
+            case WAITING_COLUMN: return formatWaiting(Duration.between(ticket.placedAt, LocalDateTime.now()));
+            case 3: return describeItems.apply(ticket.lines);
+            default:
+                String status = isPreparing(row) ? KitchenQueue.PREPARING : KitchenQueue.PENDING;
+                return ticket.rushed ? status + " (rush)" : status;
+        }
+    }
+
+    // FORMAT WAITING - "4m 05s", or "1h 12m" past an hour
+    private static String formatWaiting(Duration waited) {
+        long seconds = Math.max(0, waited.getSeconds());
+        if (seconds >= 3600) return String.format("%dh %02dm", seconds / 3600, seconds / 60 % 60);
+        return String.format("%dm %02ds", seconds / 60, seconds % 60);
+    }
+}
@@ -0,0 +1,97 @@
+package com.oakdonuts.ui;
+
+import com.oakdonuts.database.MenuCatalog;
+import com.oakdonuts.models.MenuItem;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// MenuFilterBar - search-as-you-type field plus one toggle "chip" per category, above a menu table or list
+// Every keystroke or chip click calls the change listeners, which re-read getMatches() from the catalog's in-memory
+// search index. Escape clears the search. The chips follow the catalog's categories on each refreshCategories().
+public class MenuFilterBar extends JPanel {
+    private static final String ALL = "All";
+
+    private final MenuCatalog catalog;
+    private final JTextField searchField = new JTextField(16);
+    private final JPanel chipPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 4, 0));
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+    private String category;
+
+    // CONSTRUCTOR - chips for the catalog's current categories, "All" selected
+    public MenuFilterBar(MenuCatalog catalog) {
+        super(new BorderLayout(5, 5));
+        this.catalog = catalog;
+
+        // SEARCH FIELD BLOCK
+        JPanel searchPanel = new JPanel(new BorderLayout(5, 0));
+        searchPanel.add(new JLabel("Search:"), BorderLayout.WEST);
+        searchPanel.add(searchField, BorderLayout.CENTER);
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) { fireChanged(); }
+            public void removeUpdate(DocumentEvent e) { fireChanged(); }
+            public void changedUpdate(DocumentEvent e) { fireChanged(); }
+        });
+        searchField.registerKeyboardAction(e -> searchField.setText(""), KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), JComponent.WHEN_FOCUSED);
+        add(searchPanel, BorderLayout.NORTH);
+        add(chipPanel, BorderLayout.CENTER);
+        refreshCategories();
+    }
+
+    // CHANGE LISTENERS - run on the event dispatch thread whenever the query or category changes
+    public void addChangeListener(Runnable listener) {
+        changeListeners.add(listener);
+    }
+
+    // GET MATCHES - menu items matching the current search and category, in menu order
+    public List<MenuItem> getMatches() {
+        return catalog.search(searchField.getText(), category);
+    }
+
+    // MATCHES - whether one item passes the current search and category
+    public boolean matches(MenuItem item) {
+        return catalog.matches(item, searchField.getText(), category);
+    }
+
+    // REFRESH CATEGORIES - rebuild the chips from the catalog, keeping the selected one if it still exists
+    // If it is gone, "All" is selected instead and the change listeners are told the filter changed.
+    public void refreshCategories() {
+        List<String> categories = catalog.getCategories();
+        boolean selectionDropped = category != null && !categories.contains(category);
+        if (selectionDropped) category = null;
+        chipPanel.removeAll();
+        ButtonGroup group = new ButtonGroup();
+        addChip(group, ALL, null);
+        for (String name : categories) {
+            addChip(group, name, name);
+        }
+        chipPanel.revalidate();
+        chipPanel.repaint();
+        if (selectionDropped) fireChanged();
+    }
+
+    private void addChip(ButtonGroup group, String label, String chipCategory) {
+        JToggleButton chip = new JToggleButton(label, Objects.equals(chipCategory, category));
+        chip.setMargin(new Insets(1, 8, 1, 8));
+        chip.setFocusable(false);
+        chip.addActionListener(e -> {
+            if (Objects.equals(category, chipCategory)) return;
+            category = chipCategory;
+            fireChanged();
+        });
+        group.add(chip);
+        chipPanel.add(chip);
+    }
+
+    private void fireChanged() {
+        for (Runnable listener : changeListeners) {
+            listener.run();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.oakdonuts.ui;
+
+import com.oakdonuts.events.DataChange;
+import com.oakdonuts.models.MenuItem;
+
+import javax.swing.ListModel;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+// MenuTableModel - filtered menu items, in menu order, as a table model and as a list model for a JList
+// setItems() replaces the rows when the filter changes; apply() turns menu change events into single-row inserts,
+// updates and deletes, so selection and scroll position survive an edit. Used only on the event dispatch thread.
+public class MenuTableModel extends AbstractTableModel implements ListModel<MenuItem> {
+    private static final String[] COLUMNS = {"ID", "Name", "Description", "Price", "Category"};
+
+    private final List<MenuItem> rows = new ArrayList<>();
+
+    // SET ITEMS - show exactly these items
+    public void setItems(List<MenuItem> items) {
+        rows.clear();
+        rows.addAll(items);
+        fireTableDataChanged();
+        fireListChanged(ListDataEvent.CONTENTS_CHANGED, 0, Integer.MAX_VALUE);
+    }
+
+    // APPLY - bring the rows up to date with a batch of changes; visible says whether an item passes the filter,
+    // so an edit can also move an item into or out of view. Order changes in the batch are ignored.
+    public void apply(List<DataChange> changes, Predicate<MenuItem> visible) {
+        for (DataChange change : changes) {
+            if (!change.isMenuChange()) continue;
+            int row = findRow(change.item.id);
+            boolean show = change.kind != DataChange.Kind.ITEM_DELETED && visible.test(change.item);
+            if (row >= 0 && show) {
+                rows.set(row, change.item);
+                fireTableRowsUpdated(row, row);
+                fireListChanged(ListDataEvent.CONTENTS_CHANGED, row, row);
+            } else if (row >= 0) {
+                rows.remove(row);
+                fireTableRowsDeleted(row, row);
+                fireListChanged(ListDataEvent.INTERVAL_REMOVED, row, row);
+            } else if (show) {
+                // new items get the highest IDs, so this is normally the end of the list
+                int at = 0;
+                while (at < rows.size() && rows.get(at).id < change.item.id) at++;
+                rows.add(at, change.item);
+                fireTableRowsInserted(at, at);
+                fireListChanged(ListDataEvent.INTERVAL_ADDED, at, at);
+            }
+        }
+    }
+
+    // GET ITEM - the item shown at a row
+    public MenuItem getItem(int row) {
+        return rows.get(row);
+    }
+
+    // FIND ROW - row showing the item with this ID, or -1
+    public int findRow(int id) {
+        for (int i = 0; i < rows.size(); i++) {
+            if (rows.get(i).id == id) return i;
+        }
+        return -1;
+    }
+
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    public Object getValueAt(int row, int column) {
+        MenuItem item = rows.get(row);
+        switch (column) {
+            case 0: return item.id;
+            case 1: return item.name;
+            case 2: return item.description;
+            case 3: return "$" + String.format("%.2f", item.price);
+            default: return item.category;
+        }
+    }
+
+    // LIST MODEL BLOCK - the same rows for a JList, whose listeners share the table model's listener list
+    public int getSize() {
+        return rows.size();
+    }
+
+    public MenuItem getElementAt(int index) {
+        return rows.get(index);
+    }
+
+    public void addListDataListener(ListDataListener listener) {
+        listenerList.add(ListDataListener.class, listener);
+    }
+
+    public void removeListDataListener(ListDataListener listener) {
+        listenerList.remove(ListDataListener.class, listener);
+    }
+
+    private void fireListChanged(int type, int first, int last) {
+        ListDataListener[] listeners = listenerList.getListeners(ListDataListener.class);
+        if (listeners.length == 0) return;
+        ListDataEvent event = new ListDataEvent(this, type, first, last);
+        for (ListDataListener listener : listeners) {
+            switch (type) {
+                case ListDataEvent.INTERVAL_ADDED: listener.intervalAdded(event); break;
+                case ListDataEvent.INTERVAL_REMOVED: listener.intervalRemoved(event); break;
+                default: listener.contentsChanged(event);
+            }
+        }
+    }
+}
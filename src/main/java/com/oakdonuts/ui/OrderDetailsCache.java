@@ -0,0 +1,50 @@
+package com.oakdonuts.ui;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+// OrderDetailsCache - small LRU cache of rendered order details text, keyed by transaction ID
+public class OrderDetailsCache {
+    private final Map<String, String> entries;
+    private long evictions;
+
+    // CONSTRUCTOR - create cache holding at most maxEntries rendered orders
+    public OrderDetailsCache(int maxEntries) {
+        entries = new LinkedHashMap<>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    // PEEK - cached details, or null without rendering
+    public synchronized String peek(String transactionId) {
+        return entries.get(transactionId);
+    }
+
+    // GET - return cached details, rendering and caching them on a miss (null renders are not cached)
+    // The renderer runs outside the lock so a slow database read never blocks peek() on the UI thread;
+    // a render that overlapped an eviction is returned but not cached, since it may predate the change.
+    public String get(String transactionId, Function<String, String> renderer) {
+        long evictionsBefore;
+        synchronized (this) {
+            String cached = entries.get(transactionId);
+            if (cached != null) return cached;
+            evictionsBefore = evictions;
+        }
+        String details = renderer.apply(transactionId);
+        if (details != null) {
+            synchronized (this) {
+                if (evictions == evictionsBefore) entries.put(transactionId, details);
+            }
+        }
+        return details;
+    }
+
+    // EVICT - drop an order whose status or contents changed
+    public synchronized void evict(String transactionId) {
+        evictions++;
+        entries.remove(transactionId);
+    }
+}
@@ -0,0 +1,282 @@
+package com.oakdonuts.ui;
+
+import com.oakdonuts.database.AsyncDatabase;
+import com.oakdonuts.events.DataChange;
+import com.oakdonuts.models.OrderSummary;
+
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+// OrderHistoryTableModel - lazy order history list that pages rows from the database as they are scrolled into view
+// All state is touched only on the event dispatch thread; pages load in the background and repaint when they arrive.
+// Between refreshes, apply() keeps the table current without re-reading it: orders placed since are held in a head
+// above the paged rows, and deleted rows are skipped over where they sit in their page (see ROW MAPPING BLOCK).
+public class OrderHistoryTableModel extends AbstractTableModel {
+    private static final String[] COLUMNS = {"Transaction ID", "Date", "Items", "Total", "Status"};
+    private static final int PAGE_SIZE = 100;
+    private static final int MAX_CACHED_PAGES = 10;
+    private static final Executor EDT = SwingUtilities::invokeLater;
+
+    private final AsyncDatabase db;
+    private int rowCount;
+    private int generation;
+    private final Set<Integer> loadingPages = new HashSet<>();
+
+    // HEAD BLOCK - orders created since the last refresh, newest first, shown above the paged rows
+    private final List<OrderSummary> head = new ArrayList<>();
+
+    // REMOVED BLOCK - positions among the paged rows of orders deleted since the last refresh
+    private final TreeSet<Integer> removed = new TreeSet<>();
+
+    // PAGE CACHE BLOCK - least recently used pages are dropped once the cache is full
+    private final Map<Integer, List<OrderSummary>> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<OrderSummary>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+
+    // KEYSET ANCHORS BLOCK - last row of every page seen so far, so the next page can be read by key instead of offset
+    private final Map<Integer, OrderSummary> pageAnchors = new HashMap<>();
+
+    // CONSTRUCTOR - create model and start reading the initial row count
+    public OrderHistoryTableModel(AsyncDatabase db) {
+        this.db = db;
+        refresh();
+    }
+
+    // REFRESH - re-read the row count, then drop cached pages; pages still loading for the old count are ignored
+    // The returned future completes once the table shows the new count.
+    public CompletableFuture<Void> refresh() {
+        return db.countOrders().thenAcceptAsync(count -> {
+            generation++;
+            pages.clear();
+            pageAnchors.clear();
+            loadingPages.clear();
+            head.clear();
+            removed.clear();
+            rowCount = count;
+            fireTableDataChanged();
+        }, EDT);
+    }
+
+    // APPLY - bring the rows up to date with a batch of changes, as row inserts, updates and deletes
+    // New orders go on top when they are newer than every row shown; anything that cannot be placed that way (an
+    // order dated in the past, or a deleted order on a page not in the cache) falls back to a refresh.
+    public void apply(List<DataChange> changes) {
+        List<OrderSummary> created = new ArrayList<>();
+        Map<String, String> statuses = new HashMap<>();
+        Set<String> deleted = new HashSet<>();
+        for (DataChange change : changes) {
+            switch (change.kind) {
+                case ORDER_CREATED: created.add(change.order); break;
+                case ORDER_STATUS_CHANGED: statuses.put(change.transactionId, change.status); break;
+                case ORDER_DELETED: deleted.add(change.transactionId); break;
+                default: break;
+            }
+        }
+        if (!created.isEmpty() && !insertCreated(created)) {
+            refresh();
+            return;
+        }
+        if (!statuses.isEmpty()) updateStatuses(statuses);
+        if (!deleted.isEmpty() && !removeDeleted(deleted)) refresh();
+    }
+
+    // INSERT CREATED - add new orders to the head; false if one of them does not belong on top
+    private boolean insertCreated(List<OrderSummary> created) {
+        OrderSummary top = head.isEmpty() ? cachedRow(0) : head.get(0);
+        if (top == null && rowCount > 0) return false;
+        created.removeIf(order -> order.transactionId.equals(top != null ? top.transactionId : null) || findHead(order.transactionId) >= 0);
+        if (created.isEmpty()) return true;
+        created.sort((a, b) -> compareNewestFirst(a, b));
+        if (top != null && compareNewestFirst(created.get(created.size() - 1), top) >= 0) return false;
+        head.addAll(0, created);
+        rowCount += created.size();
+        // rows moved: pages still loading were asked for by the old positions
+        generation++;
+        loadingPages.clear();
+        fireTableRowsInserted(0, created.size() - 1);
+        return true;
+    }
+
+    // UPDATE STATUSES - change the status of cached rows in place; rows not cached read the new status when loaded
+    private void updateStatuses(Map<String, String> statuses) {
+        List<Integer> changedRows = new ArrayList<>();
+        for (int i = 0; i < head.size(); i++) {
+            String status = statuses.get(head.get(i).transactionId);
+            if (status != null) {
+                head.get(i).status = status;
+                changedRows.add(i);
+            }
+        }
+        for (Map.Entry<Integer, List<OrderSummary>> entry : pages.entrySet()) {
+            List<OrderSummary> page = entry.getValue();
+            for (int i = 0; i < page.size(); i++) {
+                OrderSummary summary = page.get(i);
+                String status = summary != null ? statuses.get(summary.transactionId) : null;
+                int position = entry.getKey() * PAGE_SIZE + i;
+                if (status != null && !removed.contains(position)) {
+                    summary.status = status;
+                    changedRows.add(positionToRow(position));
+                }
+            }
+        }
+        // fired after the loop: a listener reading rows would reorder the access-ordered page cache under it
+        for (int row : changedRows) {
+            fireTableRowsUpdated(row, row);
+        }
+    }
+
+    // REMOVE DELETED - take deleted orders out of the head or mark their paged rows removed; false if one of them
+    // is not in the cache, so its row cannot be found
+    private boolean removeDeleted(Set<String> deleted) {
+        for (String transactionId : deleted) {
+            int row = findHead(transactionId);
+            if (row >= 0) {
+                head.remove(row);
+            } else {
+                int position = findPosition(transactionId);
+                if (position < 0) return false;
+                row = positionToRow(position);
+                removed.add(position);
+            }
+            rowCount--;
+            generation++;
+            loadingPages.clear();
+            fireTableRowsDeleted(row, row);
+        }
+        return true;
+    }
+
+    private int findHead(String transactionId) {
+        for (int i = 0; i < head.size(); i++) {
+            if (head.get(i).transactionId.equals(transactionId)) return i;
+        }
+        return -1;
+    }
+
+    private int findPosition(String transactionId) {
+        for (Map.Entry<Integer, List<OrderSummary>> entry : pages.entrySet()) {
+            List<OrderSummary> page = entry.getValue();
+            for (int i = 0; i < page.size(); i++) {
+                int position = entry.getKey() * PAGE_SIZE + i;
+                if (page.get(i) != null && page.get(i).transactionId.equals(transactionId) && !removed.contains(position)) return position;
+            }
+        }
+        return -1;
+    }
+
+    // CACHED ROW - the order at a row if its page is cached, without loading anything
+    private OrderSummary cachedRow(int row) {
+        if (row < head.size()) return head.get(row);
+        int position = rowToPosition(row);
+        List<OrderSummary> page = pages.get(position / PAGE_SIZE);
+        return page != null && position % PAGE_SIZE < page.size() ? page.get(position % PAGE_SIZE) : null;
+    }
+
+    private static int compareNewestFirst(OrderSummary a, OrderSummary b) {
+        int byDate = b.date.compareTo(a.date);
+        return byDate != 0 ? byDate : b.transactionId.compareTo(a.transactionId);
+    }
+
+    // ROW MAPPING BLOCK - pages hold rows by their position as of the last refresh. A table row below the head is the
+    // position reached by skipping removed ones, and the database offset of a position leaves them out again.
+    private int rowToPosition(int row) {
+        int position = row - head.size();
+        for (int gap : removed) {
+            if (gap > position) break;
+            position++;
+        }
+        return position;
+    }
+
+    private int positionToRow(int position) {
+        return head.size() + position - removed.headSet(position).size();
+    }
+
+    // GET SUMMARY - the order shown at a row, or null while its page is still loading
+    public OrderSummary getSummary(int row) {
+        if (row < head.size()) return head.get(row);
+        int position = rowToPosition(row);
+        int pageIndex = position / PAGE_SIZE;
+        List<OrderSummary> page = pages.get(pageIndex);
+        if (page == null) {
+            requestPage(pageIndex);
+            return null;
+        }
+        int offset = position % PAGE_SIZE;
+        return offset < page.size() ? page.get(offset) : null;
+    }
+
+    // GET TRANSACTION ID - ID of the order shown at a row
+    public String getTransactionId(int row) {
+        OrderSummary summary = getSummary(row);
+        return summary != null ? summary.transactionId : null;
+    }
+
+    // REQUEST PAGE - read by keyset when the previous page's last row is known, otherwise by offset
+    // The first page follows the head's oldest order, so the head's orders are not read twice.
+    private void requestPage(int pageIndex) {
+        if (!loadingPages.add(pageIndex)) return;
+        int start = pageIndex * PAGE_SIZE;
+        OrderSummary anchor = pageIndex == 0 ? (head.isEmpty() ? null : head.get(head.size() - 1)) : pageAnchors.get(pageIndex - 1);
+        CompletableFuture<List<OrderSummary>> load;
+        if (pageIndex == 0 || anchor != null) {
+            load = db.getOrderSummariesAfter(anchor != null ? anchor.date : null, anchor != null ? anchor.transactionId : null, PAGE_SIZE);
+        } else {
+            load = db.getOrderSummariesAt(head.size() + start - removed.headSet(start).size(), PAGE_SIZE);
+        }
+        int requestedGeneration = generation;
+        load.thenAcceptAsync(rows -> {
+            if (requestedGeneration != generation) return;
+            loadingPages.remove(pageIndex);
+            // removed positions are no longer in the database; keep them as gaps so later positions stay put
+            List<OrderSummary> page = new ArrayList<>(PAGE_SIZE);
+            int next = 0;
+            for (int position = start; position < start + PAGE_SIZE && next < rows.size(); position++) {
+                page.add(removed.contains(position) ? null : rows.get(next++));
+            }
+            pages.put(pageIndex, page);
+            if (next > 0) {
+                pageAnchors.put(pageIndex, rows.get(next - 1));
+            }
+            int first = positionToRow(start);
+            int last = Math.min(positionToRow(start + page.size()), rowCount) - 1;
+            if (first <= last) fireTableRowsUpdated(first, last);
+        }, EDT);
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    public Object getValueAt(int row, int column) {
+        OrderSummary summary = getSummary(row);
+        if (summary == null) return column == 0 ? "Loading..." : "";
+        switch (column) {
+            case 0: return summary.transactionId;
+            case 1: return summary.date;
+            case 2: return summary.itemCount;
+            case 3: return "$" + String.format("%.2f", summary.totalPrice);
+            default: return summary.status;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.oakdonuts.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+// Csv - streaming RFC 4180 reader and writer for the data tools (no external dependencies)
+// Fields containing commas, quotes or line breaks are quoted, with quotes doubled; a quoted field may span lines.
+public class Csv {
+
+    // RecordReader - pulls one record at a time from a character stream
+    public static class RecordReader {
+        private final Reader in;
+        private int peeked = -2;
+        private long line = 1;
+
+        public RecordReader(Reader in) {
+            this.in = in;
+        }
+
+        // READ RECORD - the next record's fields, or null at end of input; blank lines are skipped
+        public List<String> readRecord() throws IOException {
+            int c = next();
+            while (c == '\r' || c == '\n') c = next();
+            if (c == -1) return null;
+
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            long startLine = line;
+            while (true) {
+                if (c == '"' && field.length() == 0) {
+                    // QUOTED FIELD BLOCK - runs to the closing quote; "" is a literal quote
+                    while (true) {
+                        c = next();
+                        if (c == -1) throw new IOException("Unterminated quoted field starting on line " + startLine);
+                        if (c == '"') {
+                            if (peek() != '"') break;
+                            next();
+                        }
+                        field.append((char) c);
+                    }
+                    c = next();
+                    if (c != ',' && c != '\r' && c != '\n' && c != -1) {
+                        throw new IOException("Unexpected character after quoted field on line " + line);
+                    }
+                    continue;
+                }
+                if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\r' || c == '\n' || c == -1) {
+                    if (c == '\r' && peek() == '\n') next();
+                    fields.add(field.toString());
+                    return fields;
+                } else {
+                    field.append((char) c);
+                }
+                c = next();
+            }
+        }
+
+        // LINE - the input line the reader is on, for error messages
+        public long getLine() {
+            return line;
+        }
+
+        private int next() throws IOException {
+            int c = peeked != -2 ? peeked : in.read();
+            peeked = -2;
+            if (c == '\n') line++;
+            return c;
+        }
+
+        private int peek() throws IOException {
+            if (peeked == -2) peeked = in.read();
+            return peeked;
+        }
+    }
+
+    // WRITE RECORD - one record terminated by CRLF; null fields are written empty
+    public static void writeRecord(Writer out, Object... fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) out.write(',');
+            if (fields[i] != null) writeField(out, fields[i].toString());
+        }
+        out.write("\r\n");
+    }
+
+    private static void writeField(Writer out, String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+}
@@ -0,0 +1,84 @@
+package com.oakdonuts.util;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+// TransactionIds - unique, time-ordered order IDs such as "OD-0A8RGM6Y40M00", handed out without locks
+// An ID packs milliseconds since 2024-01-01 UTC (42 bits, enough until 2163), a terminal number (10 bits) and a
+// sequence within the millisecond (12 bits) into 64 bits, written as 13 Crockford base-32 digits. The digits sort
+// like the numbers they encode, so IDs sort by creation time, across terminals to the millisecond, and new orders
+// are appended at the end of the ORDERS primary-key index rather than at random places in it.
+// The clock and sequence share one AtomicLong advanced by compare-and-set. More than 4096 IDs in a millisecond
+// borrow from the next one, and a clock stepping back keeps counting on from the last ID, so within a process IDs
+// never repeat or go backwards. Terminals must have distinct numbers, set with -Doak.terminal=0..1023.
+public class TransactionIds {
+    public static final int MAX_TERMINAL = 1023;
+    private static final long EPOCH_MILLIS = 1704067200000L;
+    private static final int TERMINAL_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final int DIGITS = 13;
+    private static final String DIGIT_CHARS = "0123456789ABCDEFGHJKMNPQRSTVWXYZ";
+    private static final char[] ALPHABET = DIGIT_CHARS.toCharArray();
+
+    private final String prefix;
+    private final long terminal;
+    // LAST TICK - (milliseconds since the epoch << SEQUENCE_BITS) | sequence of the last ID handed out
+    private final AtomicLong lastTick = new AtomicLong();
+
+    // CONSTRUCTOR - IDs look like prefix + "-" + 13 digits; terminal tells apart IDs made in the same millisecond
+    public TransactionIds(String prefix, int terminal) {
+        if (terminal < 0 || terminal > MAX_TERMINAL) {
+            throw new IllegalArgumentException("Terminal number must be 0-" + MAX_TERMINAL + ": " + terminal);
+        }
+        this.prefix = prefix + "-";
+        this.terminal = terminal;
+    }
+
+    // DEFAULT TERMINAL - -Doak.terminal, else a number derived from the host name and process ID; set the property
+    // on every till and server that share a database, as two derived numbers can clash
+    public static int defaultTerminal() {
+        Integer configured = Integer.getInteger("oak.terminal");
+        if (configured != null) return configured;
+        // no host name lookup or management beans here: this runs during startup
+        String host = System.getenv().getOrDefault("HOSTNAME", System.getenv().getOrDefault("COMPUTERNAME", ""));
+        return Math.floorMod((host + "/" + ProcessHandle.current().pid()).hashCode(), MAX_TERMINAL + 1);
+    }
+
+    // NEXT - a new ID, greater than every ID this generator has handed out before
+    public String next() {
+        long now = (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        long tick = lastTick.updateAndGet(last -> Math.max(last + 1, now));
+        long millis = tick >>> SEQUENCE_BITS;
+        long sequence = tick & ((1L << SEQUENCE_BITS) - 1);
+        return encode((millis << (TERMINAL_BITS + SEQUENCE_BITS)) | (terminal << SEQUENCE_BITS) | sequence);
+    }
+
+    // CREATED AT - when an ID in this format was handed out (to the millisecond, by the clock of the terminal that
+    // made it), or null for any other ID, such as the 8 random hex digits orders were given before
+    public static Instant createdAt(String id) {
+        String digits = id.substring(id.lastIndexOf('-') + 1);
+        if (digits.length() != DIGITS) return null;
+        long value = 0;
+        for (int i = 0; i < DIGITS; i++) {
+            int digit = DIGIT_CHARS.indexOf(digits.charAt(i));
+            // 13 digits carry 65 bits, so the first must leave the top one clear
+            if (digit < 0 || (i == 0 && digit > 15)) return null;
+            value = (value << 5) | digit;
+        }
+        long millis = EPOCH_MILLIS + (value >>> (TERMINAL_BITS + SEQUENCE_BITS));
+        // a later time cannot have come from a clock, so the ID only looks like one of these
+        if (millis > System.currentTimeMillis() + 86_400_000L) return null;
+        return Instant.ofEpochMilli(millis);
+    }
+
+    // ENCODE - prefix plus the value as fixed-width base 32, most significant digit first
+    private String encode(long value) {
+        char[] id = new char[prefix.length() + DIGITS];
+        prefix.getChars(0, prefix.length(), id, 0);
+        for (int i = id.length - 1; i >= prefix.length(); i--) {
+            id[i] = ALPHABET[(int) (value & 31)];
+            value >>>= 5;
+        }
+        return new String(id);
+    }
+}